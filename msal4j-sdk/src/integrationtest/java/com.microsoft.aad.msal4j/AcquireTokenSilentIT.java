@@ -240,17 +240,17 @@ class AcquireTokenSilentIT {
         AccessTokenCacheEntity token = pca.tokenCache.accessTokens.get(key);
         long currTimestampSec = new Date().getTime() / 1000;
 
-        token.refreshOn(Long.toString(currTimestampSec + 60));
+        token.refreshOn(currTimestampSec + 60);
         pca.tokenCache.accessTokens.put(key, token);
 
         IAuthenticationResult resultSilentWithRefreshOn = acquireTokenSilently(pca, resultOriginal.account(), cfg.graphDefaultScope(), false);
         //Current time is before refreshOn, so token should not have been refreshed
         assertNotNull(resultSilentWithRefreshOn);
-        assertEquals(pca.tokenCache.accessTokens.get(key).refreshOn(), Long.toString(currTimestampSec + 60));
+        assertEquals(pca.tokenCache.accessTokens.get(key).refreshOn(), currTimestampSec + 60);
         assertTokensAreEqual(resultSilent, resultSilentWithRefreshOn);
 
         token = pca.tokenCache.accessTokens.get(key);
-        token.refreshOn(Long.toString(currTimestampSec - 60));
+        token.refreshOn(currTimestampSec - 60);
         pca.tokenCache.accessTokens.put(key, token);
 
         resultSilentWithRefreshOn = acquireTokenSilently(pca, resultOriginal.account(), cfg.graphDefaultScope(), false);
@@ -24,15 +24,9 @@ class AadInstanceDiscoveryProvider {
     private static final String INSTANCE_DISCOVERY_REQUEST_PARAMETERS_TEMPLATE = "?api-version=1.1&authorization_endpoint={authorizeEndpoint}";
     private static final String HOST_TEMPLATE_WITH_REGION = "{region}.login.microsoft.com";
     private static final String SOVEREIGN_HOST_TEMPLATE_WITH_REGION = "{region}.{host}";
-    private static final String REGION_NAME = "REGION_NAME";
+    static final String REGION_NAME = "REGION_NAME";
     private static final int PORT_NOT_SET = -1;
 
-    // For information of the current api-version refer: https://docs.microsoft.com/en-us/azure/virtual-machines/windows/instance-metadata-service#versioning
-    private static final String DEFAULT_API_VERSION = "2020-06-01";
-    private static final String IMDS_ENDPOINT = "http://169.254.169.254/metadata/instance/compute/location?api-version=" + DEFAULT_API_VERSION + "&format=text";
-
-    private static final int IMDS_TIMEOUT = 2;
-    private static final TimeUnit IMDS_TIMEOUT_UNIT = TimeUnit.SECONDS;
     static final TreeSet<String> TRUSTED_HOSTS_SET = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
     static final TreeSet<String> TRUSTED_SOVEREIGN_HOSTS_SET = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
 
@@ -42,6 +36,12 @@ class AadInstanceDiscoveryProvider {
     private static boolean instanceDiscoveryFailed = false;
     static ConcurrentHashMap<String, InstanceDiscoveryMetadataEntry> cache = new ConcurrentHashMap<>();
 
+    //Instance discoveries in progress for each host, which concurrent requests for the same host wait for
+    private static final ConcurrentHashMap<String, CompletableFuture<Void>> inFlightDiscoveries = new ConcurrentHashMap<>();
+    //Time at which a background refresh of each host's expired metadata was last started
+    private static final ConcurrentHashMap<String, Long> refreshAttempts = new ConcurrentHashMap<>();
+    private static final long MIN_REFRESH_INTERVAL_MS = 60000;
+
     static {
         TRUSTED_SOVEREIGN_HOSTS_SET.addAll(Arrays.asList(
                 "login.chinacloudapi.cn",
@@ -78,36 +78,152 @@ class AadInstanceDiscoveryProvider {
             host = getRegionalizedHost(authorityUrl.getHost(), ((AbstractClientApplicationBase) msalRequest.application()).azureRegion());
         }
 
-        //If there is no cached instance metadata, do instance discovery cache the result
+        //If there is no cached instance metadata, do instance discovery and cache the result. Concurrent requests for
+        // the same host wait for the first one to complete, rather than all sending the same requests
         if (cache.get(host) == null) {
-            log.debug("No cached instance metadata, will attempt instance discovery.");
+            String discoveryKey = host;
+            CompletableFuture<Void> discovery = new CompletableFuture<>();
+            CompletableFuture<Void> inFlightDiscovery = inFlightDiscoveries.putIfAbsent(discoveryKey, discovery);
+            if (inFlightDiscovery != null) {
+                awaitDiscovery(inFlightDiscovery, msalRequest);
+
+                //If the discovery which was waited for failed, this request tries again on its own
+                if (cache.get(host) == null) {
+                    host = discoverAndCache(host, authorityUrl, validateAuthority, msalRequest, serviceBundle);
+                }
+            } else {
+                try {
+                    //Another discovery for the host may have completed since the cache was checked
+                    if (cache.get(host) == null) {
+                        host = discoverAndCache(host, authorityUrl, validateAuthority, msalRequest, serviceBundle);
+                    }
+                } finally {
+                    inFlightDiscoveries.remove(discoveryKey, discovery);
+                    discovery.complete(null);
+                }
+            }
+        } else {
+            refreshIfExpired(authorityUrl, validateAuthority, msalRequest, serviceBundle);
+        }
+
+        return cache.get(host);
+    }
+
+    private static String discoverAndCache(String host,
+                                           URL authorityUrl,
+                                           boolean validateAuthority,
+                                           MsalRequest msalRequest,
+                                           ServiceBundle serviceBundle) {
+        log.debug("No cached instance metadata, will attempt instance discovery.");
+
+        String detectedRegion = null;
+        if (shouldUseRegionalEndpoint(msalRequest)) {
+            log.debug("Region API used, will attempt to discover Azure region.");
+
+            //Server side telemetry requires the result from region discovery when any part of the region API is used
+            detectedRegion = discoverRegion(msalRequest, serviceBundle);
+
+            //If region autodetection is enabled and a specific region was not already set, set the application's
+            // region to the discovered region so that future requests can skip the IMDS endpoint call
+            if (((AbstractClientApplicationBase) msalRequest.application()).azureRegion() == null
+                    && ((AbstractClientApplicationBase) msalRequest.application()).autoDetectRegion()
+                    && detectedRegion != null) {
+                log.debug(String.format("Region autodetection found %s, this region will be used for future calls.", detectedRegion));
+
+                ((AbstractClientApplicationBase) msalRequest.application()).azureRegion = detectedRegion;
+                host = getRegionalizedHost(authorityUrl.getHost(), ((AbstractClientApplicationBase) msalRequest.application()).azureRegion());
+            }
+
+            cacheRegionInstanceMetadata(authorityUrl.getHost(), host);
+            serviceBundle.getServerSideTelemetry().getCurrentRequest().regionOutcome(
+                    determineRegionOutcome(detectedRegion, ((AbstractClientApplicationBase) msalRequest.application()).azureRegion(), ((AbstractClientApplicationBase) msalRequest.application()).autoDetectRegion()));
+        }
+
+        doInstanceDiscoveryAndCache(authorityUrl, validateAuthority, msalRequest, serviceBundle);
+
+        PersistedInstanceDiscoveryMetadata persistedMetadata =
+                ((AbstractClientApplicationBase) msalRequest.application()).persistedInstanceDiscoveryMetadata();
+        if (persistedMetadata != null) {
+            persistedMetadata.save(detectedRegion);
+        }
 
-            if (shouldUseRegionalEndpoint(msalRequest)) {
-                log.debug("Region API used, will attempt to discover Azure region.");
+        return host;
+    }
+
+    private static void awaitDiscovery(CompletableFuture<Void> discovery, MsalRequest msalRequest) {
+        long remainingTimeInMs = msalRequest.requestContext().remainingTimeInMs();
+        try {
+            discovery.get(remainingTimeInMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw msalRequest.requestContext().timeoutException();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MsalClientException(ex);
+        } catch (ExecutionException ex) {
+            //Not completed exceptionally
+        }
+    }
 
-                //Server side telemetry requires the result from region discovery when any part of the region API is used
-                String detectedRegion = discoverRegion(msalRequest, serviceBundle);
+    //Entries found through instance discovery are discovered again in the background once they expired, so that
+    // alias changes are picked up. Requests keep using the expired entry until then
+    private static void refreshIfExpired(URL authorityUrl,
+                                         boolean validateAuthority,
+                                         MsalRequest msalRequest,
+                                         ServiceBundle serviceBundle) {
+        AbstractClientApplicationBase application = (AbstractClientApplicationBase) msalRequest.application();
+        String authorityHost = authorityUrl.getHost();
+        InstanceDiscoveryMetadataEntry entry = cache.get(authorityHost);
+
+        if (entry == null || entry.discoveredAtInMs() == 0 || application.instanceDiscoveryCacheTtlInSeconds() <= 0 ||
+                System.currentTimeMillis() - entry.discoveredAtInMs() < application.instanceDiscoveryCacheTtlInSeconds() * 1000) {
+            return;
+        }
 
-                //If region autodetection is enabled and a specific region was not already set, set the application's
-                // region to the discovered region so that future requests can skip the IMDS endpoint call
-                if (((AbstractClientApplicationBase) msalRequest.application()).azureRegion() == null
-                        && ((AbstractClientApplicationBase) msalRequest.application()).autoDetectRegion()
-                        && detectedRegion != null) {
-                    log.debug(String.format("Region autodetection found %s, this region will be used for future calls.", detectedRegion));
+        //Only one refresh is started per host, and failed refreshes are not retried right away
+        long now = System.currentTimeMillis();
+        Long lastRefreshAttempt = refreshAttempts.get(authorityHost);
+        if (lastRefreshAttempt != null && now - lastRefreshAttempt < MIN_REFRESH_INTERVAL_MS) {
+            return;
+        }
+        boolean refreshStarted = lastRefreshAttempt == null ?
+                refreshAttempts.putIfAbsent(authorityHost, now) == null :
+                refreshAttempts.replace(authorityHost, lastRefreshAttempt, now);
+        if (!refreshStarted) {
+            return;
+        }
 
-                    ((AbstractClientApplicationBase) msalRequest.application()).azureRegion = detectedRegion;
-                    host = getRegionalizedHost(authorityUrl.getHost(), ((AbstractClientApplicationBase) msalRequest.application()).azureRegion());
+        log.debug(String.format("Instance metadata for %s expired, refreshing it in the background.", authorityHost));
+        Runnable refresh = () -> {
+            try {
+                //The refresh continues after the request which started it completed, so it must not be stopped by
+                // that request's timeout or cancellation
+                AadInstanceDiscoveryResponse response = sendInstanceDiscoveryRequest(
+                        authorityUrl, msalRequest, msalRequest.requestContext().detached(), serviceBundle);
+                if (validateAuthority) {
+                    validate(response);
                 }
+                markDiscovered(response);
+                cacheInstanceDiscoveryResponse(authorityHost, response);
 
-                cacheRegionInstanceMetadata(authorityUrl.getHost(), host);
-                serviceBundle.getServerSideTelemetry().getCurrentRequest().regionOutcome(
-                        determineRegionOutcome(detectedRegion, ((AbstractClientApplicationBase) msalRequest.application()).azureRegion(), ((AbstractClientApplicationBase) msalRequest.application()).autoDetectRegion()));
+                if (application.persistedInstanceDiscoveryMetadata() != null) {
+                    application.persistedInstanceDiscoveryMetadata().save(null);
+                }
+            } catch (Exception ex) {
+                log.warn(String.format("Refreshing instance metadata for %s failed, the expired metadata will be used until it succeeds: %s",
+                        authorityHost, ex.getMessage()));
             }
+        };
 
-            doInstanceDiscoveryAndCache(authorityUrl, validateAuthority, msalRequest, serviceBundle);
+        ExecutorService executorService = serviceBundle.getExecutorService();
+        try {
+            if (executorService != null) {
+                executorService.execute(refresh);
+            } else {
+                ForkJoinPool.commonPool().execute(refresh);
+            }
+        } catch (RejectedExecutionException ex) {
+            log.warn(String.format("Could not start refreshing instance metadata for %s: %s", authorityHost, ex.getMessage()));
         }
-
-        return cache.get(host);
     }
 
     static Set<String> getAliases(String host) {
@@ -184,11 +300,15 @@ class AadInstanceDiscoveryProvider {
         Set<String> aliases = new HashSet<>();
         aliases.add(originalHost);
 
-        cache.putIfAbsent(regionalHost, InstanceDiscoveryMetadataEntry.builder().
+        InstanceDiscoveryMetadataEntry entry = InstanceDiscoveryMetadataEntry.builder().
                 preferredCache(originalHost).
                 preferredNetwork(regionalHost).
                 aliases(aliases).
-                build());
+                build();
+        //Derived from the region detected at this time, so it can be stored and expires like discovered metadata
+        entry.discoveredAtInMs = System.currentTimeMillis();
+
+        cache.putIfAbsent(regionalHost, entry);
     }
 
     private static String getRegionalizedHost(String host, String region) {
@@ -242,11 +362,18 @@ class AadInstanceDiscoveryProvider {
      static AadInstanceDiscoveryResponse sendInstanceDiscoveryRequest(URL authorityUrl,
                                                                              MsalRequest msalRequest,
                                                                              ServiceBundle serviceBundle) {
+        return sendInstanceDiscoveryRequest(authorityUrl, msalRequest, msalRequest.requestContext(), serviceBundle);
+    }
+
+    private static AadInstanceDiscoveryResponse sendInstanceDiscoveryRequest(URL authorityUrl,
+                                                                             MsalRequest msalRequest,
+                                                                             RequestContext requestContext,
+                                                                             ServiceBundle serviceBundle) {
 
         String instanceDiscoveryRequestUrl = getInstanceDiscoveryEndpoint(authorityUrl) +
                 formInstanceDiscoveryParameters(authorityUrl);
 
-        IHttpResponse httpResponse = executeRequest(instanceDiscoveryRequestUrl, msalRequest.headers().getReadonlyHeaderMap(), msalRequest, serviceBundle);
+        IHttpResponse httpResponse = executeRequest(instanceDiscoveryRequestUrl, msalRequest.headers().getReadonlyHeaderMap(), requestContext, serviceBundle);
 
         AadInstanceDiscoveryResponse response = JsonHelper.convertJsonToObject(httpResponse.body(), AadInstanceDiscoveryResponse.class);
 
@@ -290,7 +417,7 @@ class AadInstanceDiscoveryProvider {
                         Authority.getTenant(authorityUrl, Authority.detectAuthorityType(authorityUrl))));
     }
 
-    private static IHttpResponse executeRequest(String requestUrl, Map<String, String> headers, MsalRequest msalRequest, ServiceBundle serviceBundle) {
+    private static IHttpResponse executeRequest(String requestUrl, Map<String, String> headers, RequestContext requestContext, ServiceBundle serviceBundle) {
         HttpRequest httpRequest = new HttpRequest(
                 HttpMethod.GET,
                 requestUrl,
@@ -298,7 +425,7 @@ class AadInstanceDiscoveryProvider {
 
         return serviceBundle.getHttpHelper().executeHttpRequest(
                 httpRequest,
-                msalRequest.requestContext(),
+                requestContext,
                 serviceBundle);
     }
 
@@ -314,39 +441,27 @@ class AadInstanceDiscoveryProvider {
             return System.getenv(REGION_NAME);
         }
 
-        //Check the IMDS endpoint to retrieve current region (will only work if application is running in an Azure VM)
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Metadata", "true");
-
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<IHttpResponse> future = executor.submit(() -> executeRequest(IMDS_ENDPOINT, headers, msalRequest, serviceBundle));
+        //Check the IMDS endpoint to retrieve current region (will only work if application is running in an Azure VM).
+        // The outcome is shared with all requests in the process, see RegionResolver
+        CompletableFuture<String> detectedRegion = RegionResolver.detectRegion(msalRequest.application(), serviceBundle);
 
+        String region = null;
         try {
-            log.info("Starting call to IMDS endpoint.");
-            IHttpResponse httpResponse = future.get(IMDS_TIMEOUT, IMDS_TIMEOUT_UNIT);
-            //If call to IMDS endpoint was successful, return region from response body
-            if (httpResponse.statusCode() == HttpHelper.HTTP_STATUS_200 && !httpResponse.body().isEmpty()) {
-                log.info(String.format("Region retrieved from IMDS endpoint: %s", httpResponse.body()));
-                currentRequest.regionSource(RegionTelemetry.REGION_SOURCE_IMDS.telemetryValue);
-
-                return httpResponse.body();
-            }
-            log.warn(String.format("Call to local IMDS failed with status code: %s, or response was empty", httpResponse.statusCode()));
-            currentRequest.regionSource(RegionTelemetry.REGION_SOURCE_FAILED_AUTODETECT.telemetryValue);
-        } catch (Exception ex) {
-            // handle other exceptions
-            //IMDS call failed, cannot find region
-            //The IMDS endpoint is only available from within an Azure environment, so the most common cause of this
-            //  exception will likely be java.net.SocketException: Network is unreachable: connect
-            log.warn(String.format("Exception during call to local IMDS endpoint: %s", ex.getMessage()));
-            currentRequest.regionSource(RegionTelemetry.REGION_SOURCE_FAILED_AUTODETECT.telemetryValue);
-            future.cancel(true);
-
-        } finally {
-            executor.shutdownNow();
+            region = detectedRegion.get(msalRequest.requestContext().remainingTimeInMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw msalRequest.requestContext().timeoutException();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MsalClientException(ex);
+        } catch (ExecutionException ex) {
+            //Not completed exceptionally
         }
 
-        return null;
+        currentRequest.regionSource(region != null ?
+                RegionTelemetry.REGION_SOURCE_IMDS.telemetryValue :
+                RegionTelemetry.REGION_SOURCE_FAILED_AUTODETECT.telemetryValue);
+
+        return region;
     }
 
     private static void doInstanceDiscoveryAndCache(URL authorityUrl,
@@ -362,11 +477,22 @@ class AadInstanceDiscoveryProvider {
             if (validateAuthority) {
                 validate(aadInstanceDiscoveryResponse);
             }
+            markDiscovered(aadInstanceDiscoveryResponse);
         }
 
         cacheInstanceDiscoveryResponse(authorityUrl.getHost(), aadInstanceDiscoveryResponse);
     }
 
+    //Records when the metadata returned by the instance discovery endpoint was discovered, so that it expires
+    private static void markDiscovered(AadInstanceDiscoveryResponse aadInstanceDiscoveryResponse) {
+        if (aadInstanceDiscoveryResponse != null && aadInstanceDiscoveryResponse.metadata() != null) {
+            long discoveredAtInMs = System.currentTimeMillis();
+            for (InstanceDiscoveryMetadataEntry entry : aadInstanceDiscoveryResponse.metadata()) {
+                entry.discoveredAtInMs = discoveredAtInMs;
+            }
+        }
+    }
+
     private static void validate(AadInstanceDiscoveryResponse aadInstanceDiscoveryResponse) {
         if (StringHelper.isBlank(aadInstanceDiscoveryResponse.tenantDiscoveryEndpoint())) {
             throw new MsalServiceException(aadInstanceDiscoveryResponse);
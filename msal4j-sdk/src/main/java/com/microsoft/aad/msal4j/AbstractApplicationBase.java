@@ -12,11 +12,18 @@ import javax.net.ssl.SSLSocketFactory;
 import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static com.microsoft.aad.msal4j.ParameterValidationUtils.validateNotBlank;
@@ -89,16 +96,79 @@ public abstract class AbstractApplicationBase implements IApplicationBase {
     @Getter(AccessLevel.PACKAGE)
     protected TokenCache tokenCache;
 
+    //Shares the result of in-flight token requests with identical concurrent requests made by this application
+    @Accessors(fluent = true)
+    @Getter(AccessLevel.PACKAGE)
+    private final TokenRequestCoalescer tokenRequestCoalescer = new TokenRequestCoalescer();
+
+    /**
+     * @return state of the circuit of each endpoint this application sent requests to, or an empty map if the
+     * circuit breaker is not enabled, see {@link Builder#circuitBreaker(CircuitBreakerOptions)}
+     */
+    public Map<String, CircuitBreakerState> circuitBreakerStates() {
+        IHttpHelper httpHelper = serviceBundle.getHttpHelper();
+
+        return httpHelper instanceof HttpHelper ?
+                ((HttpHelper) httpHelper).circuitBreakerStates() :
+                Collections.emptyMap();
+    }
+
+    /**
+     * @return number of HTTP requests in progress, waiting and rejected by the bulkhead of this application, or null
+     * if the bulkhead is not enabled, see {@link Builder#bulkhead(BulkheadOptions)}
+     */
+    public BulkheadStatistics bulkheadStatistics() {
+        IHttpHelper httpHelper = serviceBundle.getHttpHelper();
+
+        return httpHelper instanceof HttpHelper ? ((HttpHelper) httpHelper).bulkheadStatistics() : null;
+    }
+
+    /**
+     * @return number of token requests of this application which were not sent, since they used the result of
+     * an identical request which was already in progress
+     */
+    public long coalescedTokenRequestCount() {
+        return tokenRequestCoalescer.coalescedRequestCount();
+    }
+
     CompletableFuture<IAuthenticationResult> executeRequest(
             MsalRequest msalRequest) {
 
         AuthenticationResultSupplier supplier = getAuthenticationResultSupplier(msalRequest);
 
         ExecutorService executorService = serviceBundle.getExecutorService();
-        return executorService != null ?
+        CompletableFuture<IAuthenticationResult> future = executorService != null ?
                 CompletableFuture.supplyAsync(supplier, executorService) :
                 CompletableFuture.supplyAsync(supplier);
 
+        return withCancellation(future, msalRequest.requestContext());
+    }
+
+    //Cancelling the returned future, or its timeout expiring, stops the request at its next HTTP call or retry. HTTP
+    // calls already in progress can't be interrupted, but the default HTTP client limits them to the remaining time
+    private CompletableFuture<IAuthenticationResult> withCancellation(CompletableFuture<IAuthenticationResult> future,
+                                                                      RequestContext requestContext) {
+        future.whenComplete((result, ex) -> {
+            if (ex instanceof CancellationException) {
+                requestContext.cancel();
+            }
+        });
+
+        if (requestContext.deadlineInMs() != 0 && !future.isDone()) {
+            try {
+                ScheduledFuture<?> timeout = serviceBundle.getScheduledExecutorService().schedule(() -> {
+                    if (future.completeExceptionally(requestContext.timeoutException())) {
+                        requestContext.cancel();
+                    }
+                }, Math.max(requestContext.remainingTimeInMs(), 0), TimeUnit.MILLISECONDS);
+                future.whenComplete((result, ex) -> timeout.cancel(false));
+            } catch (RejectedExecutionException ex) {
+                //The request still times out at its next HTTP call or retry
+                log.warn("Could not schedule the timeout of a request: " + ex.getMessage());
+            }
+        }
+
+        return future;
     }
 
     AuthenticationResult acquireTokenCommon(MsalRequest msalRequest, Authority requestAuthority)
@@ -173,6 +243,7 @@ public abstract class AbstractApplicationBase implements IApplicationBase {
         private String correlationId;
         private boolean logPii = false;
         ExecutorService executorService;
+        ScheduledExecutorService scheduledExecutorService;
         Proxy proxy;
         SSLSocketFactory sslSocketFactory;
         IHttpClient httpClient;
@@ -180,6 +251,9 @@ public abstract class AbstractApplicationBase implements IApplicationBase {
         Boolean onlySendFailureTelemetry = false;
         Integer connectTimeoutForDefaultHttpClient;
         Integer readTimeoutForDefaultHttpClient;
+        RetryPolicy retryPolicy;
+        CircuitBreakerOptions circuitBreakerOptions;
+        BulkheadOptions bulkheadOptions;
         private String clientId;
         private Authority authenticationAuthority = createDefaultAADAuthority();
 
@@ -234,6 +308,21 @@ public abstract class AbstractApplicationBase implements IApplicationBase {
             return self();
         }
 
+        /**
+         * Sets ScheduledExecutorService to be used for background tasks, such as removing expired tokens from the cache.
+         * Developer is responsible for maintaining the lifecycle of the ScheduledExecutorService.
+         * If not set, background tasks run on a single daemon thread shared by all applications.
+         *
+         * @param val an instance of ScheduledExecutorService
+         * @return instance of the Builder on which method was called
+         */
+        public T scheduledExecutorService(ScheduledExecutorService val) {
+            validateNotNull("scheduledExecutorService", val);
+
+            scheduledExecutorService = val;
+            return self();
+        }
+
         /**
          * Sets Proxy configuration to be used by the client application (MSAL4J by default uses
          * {@link javax.net.ssl.HttpsURLConnection}) for all network communication.
@@ -309,6 +398,52 @@ public abstract class AbstractApplicationBase implements IApplicationBase {
             return self();
         }
 
+        /**
+         * Sets the policy used to retry HTTP requests which fail with a retryable status code or exception,
+         * such as requests which fail because the service is temporarily unavailable.
+         * If not set, requests which fail with a 5xx status code are retried once after one second. Managed identity
+         * applications use other defaults, see {@link ManagedIdentityApplication.Builder#retryPolicy(RetryPolicy)}.
+         *
+         * @param val an instance of RetryPolicy
+         * @return instance of the Builder on which method was called
+         */
+        public T retryPolicy(RetryPolicy val) {
+            validateNotNull("retryPolicy", val);
+
+            retryPolicy = val;
+            return self();
+        }
+
+        /**
+         * Enables a circuit breaker for HTTP requests, so that requests to an endpoint which keeps failing fail
+         * immediately rather than waiting for the endpoint to respond or time out, until the endpoint recovers.
+         * Disabled by default.
+         *
+         * @param val an instance of CircuitBreakerOptions
+         * @return instance of the Builder on which method was called
+         */
+        public T circuitBreaker(CircuitBreakerOptions val) {
+            validateNotNull("circuitBreaker", val);
+
+            circuitBreakerOptions = val;
+            return self();
+        }
+
+        /**
+         * Enables a bulkhead for HTTP requests, which limits how many requests the application sends at once and
+         * how many can wait to be sent, so that bursts of token requests don't flood the token endpoint.
+         * Disabled by default.
+         *
+         * @param val an instance of BulkheadOptions
+         * @return instance of the Builder on which method was called
+         */
+        public T bulkhead(BulkheadOptions val) {
+            validateNotNull("bulkhead", val);
+
+            bulkheadOptions = val;
+            return self();
+        }
+
         T telemetryConsumer(Consumer<List<HashMap<String, String>>> val) {
             validateNotNull("telemetryConsumer", val);
 
@@ -4,6 +4,7 @@
 package com.microsoft.aad.msal4j;
 
 import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
@@ -15,9 +16,11 @@ import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static com.microsoft.aad.msal4j.ParameterValidationUtils.validateNotBlank;
 import static com.microsoft.aad.msal4j.ParameterValidationUtils.validateNotNull;
+import static com.microsoft.aad.msal4j.ParameterValidationUtils.validatePositive;
 
 /**
  * Abstract class containing common methods and properties to both {@link PublicClientApplication}
@@ -67,6 +70,19 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
     @Getter
     private boolean instanceDiscovery;
 
+    @Accessors(fluent = true)
+    @Getter(AccessLevel.PACKAGE)
+    private boolean backgroundTokenRefresh;
+
+    @Accessors(fluent = true)
+    @Getter(AccessLevel.PACKAGE)
+    private long instanceDiscoveryCacheTtlInSeconds;
+
+    //Null if the application has no instance discovery metadata store
+    @Accessors(fluent = true)
+    @Getter(AccessLevel.PACKAGE)
+    private PersistedInstanceDiscoveryMetadata persistedInstanceDiscoveryMetadata;
+
     @Override
     public TokenCache tokenCache() {
         return super.tokenCache;
@@ -138,6 +154,71 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
         return executeRequest(silentRequest);
     }
 
+    @Override
+    public CompletableFuture<IAuthenticationResult> tryGetCachedToken(SilentParameters parameters)
+            throws MalformedURLException {
+
+        validateNotNull("parameters", parameters);
+
+        AuthenticationResult cachedResult = getValidCachedToken(parameters);
+        if (cachedResult != null) {
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+
+        return acquireTokenSilently(parameters);
+    }
+
+    //Returns a cached token only if acquireTokenSilently would return it as is, without refreshing it or resolving
+    // the authority. Requests which may need any of that logic return null, and are handled by acquireTokenSilently.
+    private AuthenticationResult getValidCachedToken(SilentParameters parameters) throws MalformedURLException {
+        if (parameters.forceRefresh() || parameters.claims() != null || parameters.proofOfPossession() != null ||
+                parameters.tenant() != null) {
+            return null;
+        }
+
+        Authority requestAuthority = StringHelper.isBlank(parameters.authorityUrl()) ?
+                authenticationAuthority :
+                Authority.createAuthority(new URL(Authority.enforceTrailingSlash(parameters.authorityUrl())));
+
+        AuthenticationResult cachedResult;
+        if (parameters.account() == null) {
+            cachedResult = tokenCache.getCachedAuthenticationResult(
+                    requestAuthority,
+                    parameters.scopes(),
+                    clientId(),
+                    null);
+        } else {
+            cachedResult = tokenCache.getCachedAuthenticationResult(
+                    parameters.account(),
+                    requestAuthority,
+                    parameters.scopes(),
+                    clientId());
+
+            if (cachedResult == null || isRefreshNeeded(cachedResult)) {
+                return null;
+            }
+        }
+
+        if (cachedResult == null || StringHelper.isBlank(cachedResult.accessToken())) {
+            return null;
+        }
+
+        if (parameters.account() != null) {
+            serviceBundle().getServerSideTelemetry().incrementSilentSuccessfulCount();
+        }
+        cachedResult.metadata().tokenSource(TokenSource.CACHE);
+
+        return cachedResult;
+    }
+
+    private static boolean isRefreshNeeded(AuthenticationResult cachedResult) {
+        long currTimeStampSec = System.currentTimeMillis() / 1000;
+
+        return cachedResult.expiresOn() <= currTimeStampSec + AcquireTokenSilentSupplier.ACCESS_TOKEN_EXPIRE_BUFFER_IN_SEC ||
+                (cachedResult.refreshOn() != null && cachedResult.refreshOn() > 0 &&
+                        cachedResult.refreshOn() < currTimeStampSec);
+    }
+
     public CompletableFuture<Set<IAccount>> getAccounts() {
 
         RequestContext context = new RequestContext(this, PublicApi.GET_ACCOUNTS, null);
@@ -201,8 +282,14 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
         private AadInstanceDiscoveryResponse aadInstanceDiscoveryResponse;
         private String clientCapabilities;
         private boolean autoDetectRegion;
+        private boolean detectRegionOnBuild;
         private String azureRegion;
         protected boolean isInstanceDiscoveryEnabled = true;
+        private int accessTokenCacheSizeLimit;
+        private long expiredTokenSweepIntervalInSeconds;
+        private boolean backgroundTokenRefresh;
+        private IInstanceDiscoveryMetadataStore instanceDiscoveryMetadataStore;
+        private long instanceDiscoveryCacheTtlInSeconds = 24 * 60 * 60;
 
         /**
          * Constructor to create instance of Builder of client application
@@ -281,6 +368,8 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
         /**
          * Set a known authority corresponding to a generic OpenIdConnect Identity Provider.
          * MSAL will append ".well-known/openid-configuration" to the authority to retrieve the OIDC metadata and determine the endpoints.
+         * The metadata is cached for all applications using the same authority, for as long as allowed by the
+         * Cache-Control header of the response.
          *
          * @param val a string value of authority
          * @return instance of the Builder on which method was called
@@ -373,6 +462,60 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
             return self();
         }
 
+        /**
+         * Sets the maximum number of access tokens held in the application's token cache. Once the limit is exceeded,
+         * expired access tokens are evicted first, followed by the least recently used ones. Eviction counts are
+         * available through {@link TokenCache#expiredAccessTokenEvictions()} and
+         * {@link TokenCache#sizeLimitAccessTokenEvictions()}.
+         * <p>
+         * By default the number of cached access tokens is not limited.
+         *
+         * @param val maximum number of cached access tokens
+         * @return instance of the Builder on which method was called
+         */
+        public T accessTokenCacheSizeLimit(int val) {
+            validatePositive("accessTokenCacheSizeLimit", val);
+
+            accessTokenCacheSizeLimit = val;
+            return self();
+        }
+
+        /**
+         * Enables a background task which periodically removes expired access tokens from the application's token cache,
+         * along with ID tokens and accounts which no longer have any access or refresh token. The task runs on the
+         * ScheduledExecutorService set with {@link #scheduledExecutorService(ScheduledExecutorService)}, or on
+         * a shared daemon thread if none was set.
+         * <p>
+         * By default expired tokens are only skipped during cache lookups and are never removed.
+         *
+         * @param val interval between sweeps in seconds
+         * @return instance of the Builder on which method was called
+         */
+        public T expiredTokenSweepInterval(long val) {
+            validatePositive("expiredTokenSweepInterval", val);
+
+            expiredTokenSweepIntervalInSeconds = val;
+            return self();
+        }
+
+        /**
+         * Enables returning cached access tokens which are past their refresh time but not yet expired, while they are
+         * refreshed in the background. This removes the refresh latency from silent token requests made after the
+         * refresh time set by the identity provider. Background refreshes run on the ExecutorService set with
+         * {@link #executorService(ExecutorService)}, or on the common ForkJoinPool if none was set, and only one
+         * background refresh runs at a time for each token.
+         * <p>
+         * By default the token is refreshed before the silent request returns, and the cached token is only returned
+         * if the refresh fails.
+         *
+         * @param val true to refresh tokens in the background
+         * @return instance of the Builder on which method was called
+         */
+        public T backgroundTokenRefresh(boolean val) {
+            backgroundTokenRefresh = val;
+            return self();
+        }
+
         private static Authority createDefaultAADAuthority() {
             Authority authority;
             try {
@@ -407,6 +550,19 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
             return self();
         }
 
+        /**
+         * Starts detecting the region when the application is built, rather than when the first token request needs
+         * it, so that detection runs in parallel with other startup work. Only used if region autodetection is
+         * enabled with {@link #autoDetectRegion(boolean)} and no region was set.
+         *
+         * @param val boolean (default is false)
+         * @return instance of the Builder on which method was called
+         */
+        public T detectRegionOnBuild(boolean val) {
+            detectRegionOnBuild = val;
+            return self();
+        }
+
         /**
          * Set the region that the library will use to format authorities in token requests. If given a valid Azure region,
          * the library will attempt to make token requests at a regional ESTS-R endpoint rather than the global ESTS endpoint.
@@ -439,6 +595,35 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
             return self();
         }
 
+        /**
+         * Sets the time after which metadata found through instance discovery is discovered again, so that changes
+         * to it are picked up. The metadata is discovered again in the background, and the expired metadata is used
+         * until then. A value of 0 or less means that metadata is never discovered again. The default value is one day.
+         *
+         * @param val time in seconds
+         * @return instance of the Builder on which method was called
+         */
+        public T instanceDiscoveryCacheTtlInSeconds(long val) {
+            instanceDiscoveryCacheTtlInSeconds = val;
+            return self();
+        }
+
+        /**
+         * Sets a store in which the metadata found through instance discovery, the metadata of an OIDC authority and
+         * the region detected with {@link #autoDetectRegion(boolean)} are saved. Stored metadata is read when the
+         * application is built, so that applications created later, for example after a restart or in another replica
+         * of a service, don't need to send discovery and region detection requests before their first token request.
+         *
+         * @param val an instance of IInstanceDiscoveryMetadataStore, such as {@link FileInstanceDiscoveryMetadataStore}
+         * @return instance of the Builder on which method was called
+         */
+        public T instanceDiscoveryMetadataStore(IInstanceDiscoveryMetadataStore val) {
+            validateNotNull("instanceDiscoveryMetadataStore", val);
+
+            instanceDiscoveryMetadataStore = val;
+            return self();
+        }
+
         /**
          * Set logPii - boolean value, which determines
          * whether Pii (personally identifiable information) will be logged in.
@@ -507,6 +692,18 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
             return super.executorService(val);
         }
 
+        /**
+         * Sets ScheduledExecutorService to be used for background tasks, such as removing expired tokens from the cache.
+         * Developer is responsible for maintaining the lifecycle of the ScheduledExecutorService.
+         * If not set, background tasks run on a single daemon thread shared by all applications.
+         *
+         * @param val an instance of ScheduledExecutorService
+         * @return instance of the Builder on which method was called
+         */
+        public T scheduledExecutorService(ScheduledExecutorService val) {
+            return super.scheduledExecutorService(val);
+        }
+
         /**
          * Sets Proxy configuration to be used by the client application (MSAL4J by default uses
          * {@link javax.net.ssl.HttpsURLConnection}) for all network communication.
@@ -544,26 +741,56 @@ public abstract class AbstractClientApplicationBase extends AbstractApplicationB
         applicationName = builder.applicationName;
         applicationVersion = builder.applicationVersion;
         authenticationAuthority = builder.authenticationAuthority;
-        super.tokenCache = new TokenCache(builder.tokenCacheAccessAspect);
+        super.tokenCache = new TokenCache(builder.tokenCacheAccessAspect, builder.accessTokenCacheSizeLimit);
         aadAadInstanceDiscoveryResponse = builder.aadInstanceDiscoveryResponse;
         clientCapabilities = builder.clientCapabilities;
         autoDetectRegion = builder.autoDetectRegion;
         azureRegion = builder.azureRegion;
         instanceDiscovery = builder.isInstanceDiscoveryEnabled;
+        backgroundTokenRefresh = builder.backgroundTokenRefresh;
+        instanceDiscoveryCacheTtlInSeconds = builder.instanceDiscoveryCacheTtlInSeconds;
         super.serviceBundle = new ServiceBundle(
                 builder.executorService,
+                builder.scheduledExecutorService,
                 new TelemetryManager(telemetryConsumer, builder.onlySendFailureTelemetry),
                 new HttpHelper(builder.httpClient == null ?
                         new DefaultHttpClient(builder.proxy, builder.sslSocketFactory, builder.connectTimeoutForDefaultHttpClient, builder.readTimeoutForDefaultHttpClient) :
-                        builder.httpClient)
+                        builder.httpClient,
+                        builder.retryPolicy,
+                        builder.circuitBreakerOptions,
+                        builder.bulkheadOptions)
         );
 
+        if (builder.expiredTokenSweepIntervalInSeconds > 0) {
+            TokenCacheSweeper.schedule(
+                    super.tokenCache,
+                    clientId,
+                    super.serviceBundle.getScheduledExecutorService(),
+                    builder.expiredTokenSweepIntervalInSeconds);
+        }
+
         if (aadAadInstanceDiscoveryResponse != null) {
             AadInstanceDiscoveryProvider.cacheInstanceDiscoveryResponse(
                     authenticationAuthority.host,
                     aadAadInstanceDiscoveryResponse);
         }
 
+        if (builder.instanceDiscoveryMetadataStore != null) {
+            persistedInstanceDiscoveryMetadata = new PersistedInstanceDiscoveryMetadata(
+                    builder.instanceDiscoveryMetadataStore);
+
+            String storedRegion = persistedInstanceDiscoveryMetadata.load();
+            //A region detected by an earlier application is used as if it was detected by this one
+            if (azureRegion == null && autoDetectRegion && storedRegion != null) {
+                azureRegion = storedRegion;
+            }
+        }
+
+        if (builder.detectRegionOnBuild && autoDetectRegion && azureRegion == null &&
+                System.getenv(AadInstanceDiscoveryProvider.REGION_NAME) == null) {
+            RegionResolver.detectRegion(this, super.serviceBundle);
+        }
+
         if (authenticationAuthority.authorityType == AuthorityType.OIDC) {
             ((OidcAuthority) authenticationAuthority).setAuthorityProperties(
                     OidcDiscoveryProvider.performOidcDiscovery(
@@ -3,13 +3,18 @@
 
 package com.microsoft.aad.msal4j;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Accessors(fluent = true)
 @Getter
@@ -25,17 +30,108 @@ class AccessTokenCacheEntity extends Credential {
     @JsonProperty("target")
     private String target;
 
+    //Timestamps in seconds since the epoch, 0 if not set. They are serialized as strings through the
+    //xxxString accessors below, so the cache format is the same as when they were held as strings
+    @JsonIgnore
+    private long cachedAt;
+
+    @JsonIgnore
+    private long expiresOn;
+
+    @JsonIgnore
+    private long extExpiresOn;
+
+    @JsonIgnore
+    private long refreshOn;
+
+    //Parsed form of target, set by the owning TokenCache when the entity is cached so scope matching doesn't need to re-parse it
+    @JsonIgnore
+    private transient volatile Set<String> scopeSet;
+
+    //Time of the last cache hit (or of the entity being cached), used when evicting least recently used access tokens
+    @JsonIgnore
+    private transient volatile long lastAccessedAt = System.currentTimeMillis();
+
+    AccessTokenCacheEntity target(String target) {
+        this.target = target;
+        this.scopeSet = null;
+        return this;
+    }
+
+    Set<String> scopeSet() {
+        Set<String> parsedScopes = scopeSet;
+        if (parsedScopes == null) {
+            parsedScopes = parseScopes(target);
+            scopeSet = parsedScopes;
+        }
+        return parsedScopes;
+    }
+
+    void scopeSet(Set<String> scopeSet) {
+        this.scopeSet = scopeSet;
+    }
+
     @JsonProperty("cached_at")
-    private String cachedAt;
+    String cachedAtString() {
+        return timestampToString(cachedAt);
+    }
+
+    @JsonProperty("cached_at")
+    void cachedAtString(String cachedAt) {
+        this.cachedAt = parseTimestamp(cachedAt);
+    }
+
+    @JsonProperty("expires_on")
+    String expiresOnString() {
+        return timestampToString(expiresOn);
+    }
 
     @JsonProperty("expires_on")
-    private String expiresOn;
+    void expiresOnString(String expiresOn) {
+        this.expiresOn = parseTimestamp(expiresOn);
+    }
+
+    @JsonProperty("extended_expires_on")
+    String extExpiresOnString() {
+        return timestampToString(extExpiresOn);
+    }
 
     @JsonProperty("extended_expires_on")
-    private String extExpiresOn;
+    void extExpiresOnString(String extExpiresOn) {
+        this.extExpiresOn = parseTimestamp(extExpiresOn);
+    }
+
+    @JsonProperty("refresh_on")
+    String refreshOnString() {
+        return timestampToString(refreshOn);
+    }
 
     @JsonProperty("refresh_on")
-    private String refreshOn;
+    void refreshOnString(String refreshOn) {
+        this.refreshOn = parseTimestamp(refreshOn);
+    }
+
+    private static String timestampToString(long timestamp) {
+        return timestamp == 0 ? null : Long.toString(timestamp);
+    }
+
+    /**
+     * @throws NumberFormatException if the value is not a number
+     */
+    private static long parseTimestamp(String timestamp) {
+        return timestamp == null ? 0 : Long.parseLong(timestamp);
+    }
+
+    static Set<String> parseScopes(String target) {
+        if (target == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> scopes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        scopes.addAll(Arrays.asList(target.split(Constants.SCOPES_SEPARATOR)));
+
+        return Collections.unmodifiableSet(scopes);
+    }
 
     String getKey() {
         List<String> keyParts = new ArrayList<>();
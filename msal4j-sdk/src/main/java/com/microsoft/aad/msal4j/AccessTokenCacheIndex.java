@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secondary indexes over the access tokens held by a {@link TokenCache}, allowing lookups by client id and realm
+ * (and optionally home account id or user assertion hash) without scanning every cached access token.
+ * <p>
+ * Also holds a dictionary of parsed scope sets, so that access tokens with the same target share a single
+ * pre-parsed, case-insensitive set of scopes. A scope set is dropped once no indexed access token uses it
+ * <p>
+ * Not thread-safe, access must be guarded by the owning TokenCache's lock
+ */
+class AccessTokenCacheIndex {
+
+    // client id and realm to access token cache keys
+    private final Map<String, Set<String>> byApplication = new HashMap<>();
+
+    // client id, realm and home account id to access token cache keys
+    private final Map<String, Set<String>> byHomeAccount = new HashMap<>();
+
+    // client id, realm and user assertion hash to access token cache keys
+    private final Map<String, Set<String>> byUserAssertion = new HashMap<>();
+
+    // lowercase target to parsed scopes
+    private final Map<String, Set<String>> scopeSets = new HashMap<>();
+
+    // lowercase target to the number of indexed access tokens sharing its parsed scopes
+    private final Map<String, Integer> scopeSetReferences = new HashMap<>();
+
+    static AccessTokenCacheIndex create(Map<String, AccessTokenCacheEntity> accessTokens) {
+        AccessTokenCacheIndex index = new AccessTokenCacheIndex();
+        for (Map.Entry<String, AccessTokenCacheEntity> entry : accessTokens.entrySet()) {
+            index.add(entry.getKey(), entry.getValue());
+        }
+        return index;
+    }
+
+    void add(String key, AccessTokenCacheEntity accessToken) {
+        accessToken.scopeSet(internScopes(accessToken.target()));
+
+        addToIndex(byApplication, applicationKey(accessToken.clientId(), accessToken.realm()), key);
+
+        if (!StringHelper.isBlank(accessToken.homeAccountId())) {
+            addToIndex(byHomeAccount,
+                    homeAccountKey(accessToken.clientId(), accessToken.realm(), accessToken.homeAccountId()), key);
+        }
+        if (!StringHelper.isBlank(accessToken.userAssertionHash())) {
+            addToIndex(byUserAssertion,
+                    userAssertionKey(accessToken.clientId(), accessToken.realm(), accessToken.userAssertionHash()), key);
+        }
+    }
+
+    void remove(String key, AccessTokenCacheEntity accessToken) {
+        releaseScopes(accessToken.target());
+
+        removeFromIndex(byApplication, applicationKey(accessToken.clientId(), accessToken.realm()), key);
+
+        if (!StringHelper.isBlank(accessToken.homeAccountId())) {
+            removeFromIndex(byHomeAccount,
+                    homeAccountKey(accessToken.clientId(), accessToken.realm(), accessToken.homeAccountId()), key);
+        }
+        if (!StringHelper.isBlank(accessToken.userAssertionHash())) {
+            removeFromIndex(byUserAssertion,
+                    userAssertionKey(accessToken.clientId(), accessToken.realm(), accessToken.userAssertionHash()), key);
+        }
+    }
+
+    Set<String> keysForApplication(String clientId, String realm) {
+        return byApplication.getOrDefault(applicationKey(clientId, realm), Collections.emptySet());
+    }
+
+    Set<String> keysForHomeAccount(String clientId, String realm, String homeAccountId) {
+        return byHomeAccount.getOrDefault(homeAccountKey(clientId, realm, homeAccountId), Collections.emptySet());
+    }
+
+    Set<String> keysForUserAssertion(String clientId, String realm, String userAssertionHash) {
+        return byUserAssertion.getOrDefault(userAssertionKey(clientId, realm, userAssertionHash), Collections.emptySet());
+    }
+
+    int scopeSetCount() {
+        return scopeSets.size();
+    }
+
+    private Set<String> internScopes(String target) {
+        if (target == null) {
+            return AccessTokenCacheEntity.parseScopes(null);
+        }
+        String scopeSetKey = target.toLowerCase();
+        scopeSetReferences.merge(scopeSetKey, 1, Integer::sum);
+        return scopeSets.computeIfAbsent(scopeSetKey, k -> AccessTokenCacheEntity.parseScopes(target));
+    }
+
+    private void releaseScopes(String target) {
+        if (target == null) {
+            return;
+        }
+        String scopeSetKey = target.toLowerCase();
+        if (scopeSetReferences.computeIfPresent(scopeSetKey, (k, count) -> count > 1 ? count - 1 : null) == null) {
+            scopeSets.remove(scopeSetKey);
+        }
+    }
+
+    private static void addToIndex(Map<String, Set<String>> index, String indexKey, String key) {
+        index.computeIfAbsent(indexKey, k -> new LinkedHashSet<>()).add(key);
+    }
+
+    private static void removeFromIndex(Map<String, Set<String>> index, String indexKey, String key) {
+        Set<String> keys = index.get(indexKey);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(indexKey);
+            }
+        }
+    }
+
+    private static String applicationKey(String clientId, String realm) {
+        return clientId + Constants.CACHE_KEY_SEPARATOR + realm;
+    }
+
+    private static String homeAccountKey(String clientId, String realm, String homeAccountId) {
+        return applicationKey(clientId, realm) + Constants.CACHE_KEY_SEPARATOR + homeAccountId;
+    }
+
+    // User assertion hashes are compared case-insensitively by the cache
+    private static String userAssertionKey(String clientId, String realm, String userAssertionHash) {
+        return applicationKey(clientId, realm) + Constants.CACHE_KEY_SEPARATOR + userAssertionHash.toLowerCase();
+    }
+}
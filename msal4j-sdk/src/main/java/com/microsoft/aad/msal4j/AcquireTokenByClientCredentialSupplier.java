@@ -6,6 +6,8 @@ package com.microsoft.aad.msal4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 class AcquireTokenByClientCredentialSupplier extends AuthenticationResultSupplier {
 
     private static final Logger LOG = LoggerFactory.getLogger(AcquireTokenByClientCredentialSupplier.class);
@@ -55,8 +57,29 @@ class AcquireTokenByClientCredentialSupplier extends AuthenticationResultSupplie
     }
 
     private AuthenticationResult acquireTokenByClientCredential() throws Exception {
+        //Concurrent requests for the same token share a single request, unless they use their own client credential
+        List<Object> requestKey = clientCredentialRequest.parameters.clientCredential() != null ?
+                null :
+                TokenRequestCoalescer.requestKey(
+                        clientApplication.clientId(),
+                        clientApplication.authority(),
+                        clientCredentialRequest.parameters,
+                        null);
+
+        return clientApplication.tokenRequestCoalescer().execute(
+                requestKey, clientCredentialRequest.requestContext(), this::sendClientCredentialRequest);
+    }
+
+    private AuthenticationResult sendClientCredentialRequest(RequestContext requestContext) throws Exception {
+        ClientCredentialRequest clientCredentialRequest = requestContext == this.clientCredentialRequest.requestContext() ?
+                this.clientCredentialRequest :
+                new ClientCredentialRequest(
+                        this.clientCredentialRequest.parameters,
+                        (ConfidentialClientApplication) this.clientApplication,
+                        requestContext,
+                        this.clientCredentialRequest.appTokenProvider);
 
-        if (this.clientCredentialRequest.appTokenProvider != null) {
+        if (clientCredentialRequest.appTokenProvider != null) {
 
             String claims = "";
             if (null != clientCredentialRequest.parameters.claims()) {
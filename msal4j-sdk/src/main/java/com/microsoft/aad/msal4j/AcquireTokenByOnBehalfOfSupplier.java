@@ -6,6 +6,8 @@ package com.microsoft.aad.msal4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 class AcquireTokenByOnBehalfOfSupplier extends AuthenticationResultSupplier {
 
     private final static Logger LOG = LoggerFactory.getLogger(AcquireTokenByOnBehalfOfSupplier.class);
@@ -55,11 +57,22 @@ class AcquireTokenByOnBehalfOfSupplier extends AuthenticationResultSupplier {
     }
 
     private AuthenticationResult acquireTokenOnBehalfOf() throws Exception {
-        AcquireTokenByAuthorizationGrantSupplier supplier = new AcquireTokenByAuthorizationGrantSupplier(
-                this.clientApplication,
-                onBehalfOfRequest,
-                null);
+        //Concurrent requests for the same token share a single request
+        List<Object> requestKey = TokenRequestCoalescer.requestKey(
+                clientApplication.clientId(),
+                clientApplication.authority(),
+                onBehalfOfRequest.parameters,
+                onBehalfOfRequest.parameters.userAssertion().getAssertionHash());
 
-        return supplier.execute();
+        return clientApplication.tokenRequestCoalescer().execute(
+                requestKey,
+                onBehalfOfRequest.requestContext(),
+                requestContext -> new AcquireTokenByAuthorizationGrantSupplier(
+                        this.clientApplication,
+                        new OnBehalfOfRequest(
+                                onBehalfOfRequest.parameters,
+                                (ConfidentialClientApplication) this.clientApplication,
+                                requestContext),
+                        null).execute());
     }
 }
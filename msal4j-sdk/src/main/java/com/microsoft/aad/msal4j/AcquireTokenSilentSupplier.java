@@ -8,6 +8,10 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.net.URL;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 @Slf4j
 class AcquireTokenSilentSupplier extends AuthenticationResultSupplier {
@@ -23,7 +27,7 @@ class AcquireTokenSilentSupplier extends AuthenticationResultSupplier {
 
     @Override
     AuthenticationResult execute() throws Exception {
-        boolean shouldRefresh;
+        CacheTelemetry refreshReason;
         Authority requestAuthority = silentRequest.requestAuthority();
         if (requestAuthority.authorityType != AuthorityType.B2C) {
             requestAuthority =
@@ -55,18 +59,27 @@ class AcquireTokenSilentSupplier extends AuthenticationResultSupplier {
                 clientApplication.serviceBundle().getServerSideTelemetry().incrementSilentSuccessfulCount();
             }
 
-            shouldRefresh = shouldRefresh(silentRequest.parameters(), res);
+            refreshReason = shouldRefresh(silentRequest.parameters(), res);
 
-            if (shouldRefresh || clientApplication.serviceBundle().getServerSideTelemetry().getCurrentRequest().cacheInfo() == CacheTelemetry.REFRESH_REFRESH_IN.telemetryValue) {
+            if (refreshReason != null) {
+                setCacheTelemetry(refreshReason.telemetryValue);
                 if (!StringHelper.isBlank(res.refreshToken())) {
                     //There are certain scenarios where the cached authority may differ from the client app's authority,
                     // such as when a request is instance aware. Unless overridden by SilentParameters.authorityUrl, the
                     // cached authority should be used in the token refresh request
                     if (silentRequest.parameters().authorityUrl() == null && !res.account().environment().equals(requestAuthority.host)) {
-                        requestAuthority = Authority.createAuthority(new URL(requestAuthority.authority().replace(requestAuthority.host(),
-                                res.account().environment())));
+                        String cachedAuthority = requestAuthority.authority().replace(requestAuthority.host(),
+                                res.account().environment());
+                        requestAuthority = AuthorityCache.authority(cachedAuthority, null, null,
+                                () -> Authority.createAuthority(new URL(cachedAuthority)));
+                    }
+                    //Tokens past their refreshOn time are still valid, so may be returned while being refreshed
+                    boolean refreshOnTriggered = refreshReason == CacheTelemetry.REFRESH_REFRESH_IN;
+                    if (refreshOnTriggered && refreshInBackground(res, requestAuthority)) {
+                        log.debug("Returning cached token while it is refreshed in the background");
+                    } else {
+                        res = makeRefreshRequest(res, requestAuthority, refreshOnTriggered);
                     }
-                    res = makeRefreshRequest(res, requestAuthority);
                 } else {
                     res = null;
                 }
@@ -81,77 +94,133 @@ class AcquireTokenSilentSupplier extends AuthenticationResultSupplier {
         return res;
     }
 
-    private AuthenticationResult makeRefreshRequest(AuthenticationResult cachedResult,  Authority requestAuthority) throws Exception {
-        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest(
-                RefreshTokenParameters.builder(silentRequest.parameters().scopes(), cachedResult.refreshToken()).build(),
-                silentRequest.application(),
-                silentRequest.requestContext(),
-                silentRequest);
-
-        AcquireTokenByAuthorizationGrantSupplier acquireTokenByAuthorisationGrantSupplier =
-                new AcquireTokenByAuthorizationGrantSupplier(clientApplication, refreshTokenRequest, requestAuthority);
-
+    private AuthenticationResult makeRefreshRequest(AuthenticationResult cachedResult,
+                                                    Authority requestAuthority,
+                                                    boolean refreshOnTriggered) throws Exception {
         try {
-            AuthenticationResult refreshedResult = acquireTokenByAuthorisationGrantSupplier.execute();
-
-            refreshedResult.metadata().tokenSource(TokenSource.IDENTITY_PROVIDER);
+            AuthenticationResult refreshedResult = clientApplication.tokenRequestCoalescer().execute(
+                    getRefreshRequestKey(requestAuthority),
+                    silentRequest.requestContext(),
+                    requestContext -> sendRefreshRequest(cachedResult, requestAuthority, requestContext));
 
             log.info("Access token refreshed successfully.");
             return refreshedResult;
         } catch (MsalServiceException ex) {
             //If the token refresh attempt threw a MsalServiceException but the refresh attempt was done
             // only because of refreshOn, then simply return the existing cached token rather than throw an exception
-            if (clientApplication.serviceBundle().getServerSideTelemetry().getCurrentRequest().cacheInfo() == CacheTelemetry.REFRESH_REFRESH_IN.telemetryValue) {
+            if (refreshOnTriggered) {
                 return cachedResult;
             }
             throw ex;
         }
     }
 
-    //Handles any logic to determine if a token should be refreshed, based on the request parameters and the status of cached tokens
-    private boolean shouldRefresh(SilentParameters parameters, AuthenticationResult cachedResult) {
+    /**
+     * Starts refreshing a token which is past its refreshOn time in the background, if enabled for the application
+     * and if it isn't already being refreshed
+     *
+     * @return true if the cached token can be returned without waiting for the refresh
+     */
+    private boolean refreshInBackground(AuthenticationResult cachedResult, Authority requestAuthority) {
+        if (!(clientApplication instanceof AbstractClientApplicationBase) ||
+                !((AbstractClientApplicationBase) clientApplication).backgroundTokenRefresh()) {
+            return false;
+        }
+
+        List<Object> requestKey = getRefreshRequestKey(requestAuthority);
+        if (requestKey == null) {
+            return false;
+        }
+
+        ExecutorService executorService = clientApplication.serviceBundle().getExecutorService();
+        CompletableFuture<AuthenticationResult> future = clientApplication.tokenRequestCoalescer().executeAsync(
+                requestKey,
+                silentRequest.requestContext(),
+                requestContext -> sendRefreshRequest(cachedResult, requestAuthority, requestContext),
+                executorService != null ? executorService : ForkJoinPool.commonPool());
+
+        if (future != null) {
+            future.whenComplete((refreshedResult, ex) -> {
+                if (ex != null) {
+                    log.warn(String.format("Background refresh of access token failed: %s", ex.getMessage()));
+                } else {
+                    log.info("Access token refreshed successfully in the background.");
+                }
+            });
+        }
+
+        return true;
+    }
+
+    //The result may be shared with identical concurrent requests, so it is completed here rather than by each of them
+    private AuthenticationResult sendRefreshRequest(AuthenticationResult cachedResult,
+                                                    Authority requestAuthority,
+                                                    RequestContext requestContext) throws Exception {
+        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest(
+                RefreshTokenParameters.builder(silentRequest.parameters().scopes(), cachedResult.refreshToken()).build(),
+                silentRequest.application(),
+                requestContext,
+                silentRequest);
+
+        AuthenticationResult refreshedResult = new AcquireTokenByAuthorizationGrantSupplier(
+                clientApplication, refreshTokenRequest, requestAuthority).execute();
+        refreshedResult.metadata().tokenSource(TokenSource.IDENTITY_PROVIDER);
+
+        return refreshedResult;
+    }
+
+    //Concurrent refreshes of the same token share a single request, except for proof-of-possession tokens
+    // which are bound to the parameters of each request
+    private List<Object> getRefreshRequestKey(Authority requestAuthority) {
+        return silentRequest.parameters().proofOfPossession() != null ?
+                null :
+                TokenRequestCoalescer.requestKey(
+                        clientApplication.clientId(),
+                        requestAuthority.authority(),
+                        silentRequest.parameters(),
+                        silentRequest.parameters().account().homeAccountId());
+    }
+
+    //Handles any logic to determine if a token should be refreshed, based on the request parameters and the status of cached tokens.
+    // Returns the reason the token should be refreshed for, or null if it shouldn't be refreshed
+    private CacheTelemetry shouldRefresh(SilentParameters parameters, AuthenticationResult cachedResult) {
 
         //If forceRefresh is true, no reason to check any other option
         if (parameters.forceRefresh()) {
-            setCacheTelemetry(CacheTelemetry.REFRESH_FORCE_REFRESH.telemetryValue);
             log.debug("Refreshing access token because forceRefresh parameter is true.");
-            return true;
+            return CacheTelemetry.REFRESH_FORCE_REFRESH;
         }
 
         //If the request contains claims then the token should be refreshed, to ensure that the returned token has the correct claims
         //  Note: these are the types of claims found in (for example) a claims challenge, and do not include client capabilities
         if (parameters.claims() != null) {
-            setCacheTelemetry(CacheTelemetry.REFRESH_FORCE_REFRESH.telemetryValue);
             log.debug("Refreshing access token because the claims parameter is not null.");
-            return true;
+            return CacheTelemetry.REFRESH_FORCE_REFRESH;
         }
 
         long currTimeStampSec = new Date().getTime() / 1000;
 
         //If the access token is expired or within 5 minutes of becoming expired, refresh it
         if (!StringHelper.isBlank(cachedResult.accessToken()) && cachedResult.expiresOn() < (currTimeStampSec - ACCESS_TOKEN_EXPIRE_BUFFER_IN_SEC)) {
-            setCacheTelemetry(CacheTelemetry.REFRESH_ACCESS_TOKEN_EXPIRED.telemetryValue);
             log.debug("Refreshing access token because it is expired.");
-            return true;
+            return CacheTelemetry.REFRESH_ACCESS_TOKEN_EXPIRED;
         }
 
         //Certain long-lived tokens will have a 'refresh on' time that indicates a refresh should be attempted long before the token would expire
         if (!StringHelper.isBlank(cachedResult.accessToken()) &&
                 cachedResult.refreshOn() != null && cachedResult.refreshOn() > 0 &&
                 cachedResult.refreshOn() < currTimeStampSec && cachedResult.expiresOn() >= (currTimeStampSec + ACCESS_TOKEN_EXPIRE_BUFFER_IN_SEC)){
-            setCacheTelemetry(CacheTelemetry.REFRESH_REFRESH_IN.telemetryValue);
             log.debug("Attempting to refresh access token because it is after the refreshOn time.");
-            return true;
+            return CacheTelemetry.REFRESH_REFRESH_IN;
         }
 
         //If there is a refresh token but no access token, we should use the refresh token to get the access token
         if (StringHelper.isBlank(cachedResult.accessToken()) && !StringHelper.isBlank(cachedResult.refreshToken())) {
-            setCacheTelemetry(CacheTelemetry.REFRESH_NO_ACCESS_TOKEN.telemetryValue);
             log.debug("Refreshing access token because it was missing from the cache.");
-            return true;
+            return CacheTelemetry.REFRESH_NO_ACCESS_TOKEN;
         }
 
-        return false;
+        return null;
     }
 
     private void setCacheTelemetry(int cacheInfoValue){
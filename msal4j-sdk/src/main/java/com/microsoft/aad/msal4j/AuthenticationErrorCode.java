@@ -116,6 +116,12 @@ public class AuthenticationErrorCode {
      */
     public final static String INVALID_JWT = "invalid_jwt";
 
+    /**
+     * A failure to read a serialized token cache in the binary format, indicating the data provided to MSAL is
+     * not a serialized token cache, or was serialized with an unsupported format version.
+     */
+    public final static String INVALID_CACHE_FORMAT = "invalid_cache_format";
+
     /**
      * Indicates that a Broker implementation is missing from the device, such as when an app developer
      * does not include one of our broker packages as a dependency in their project, or otherwise cannot
@@ -147,4 +153,22 @@ public class AuthenticationErrorCode {
      * For more information on managed identity see https://aka.ms/msal4j-managed-identity.
      */
     public static final String MANAGED_IDENTITY_REQUEST_FAILED = "managed_identity_request_failed";
+
+    /**
+     * Indicates that a request was not sent because the endpoint it was sent to failed too many recent requests,
+     * and its circuit breaker is open. See {@link CircuitBreakerOptions}
+     */
+    public static final String CIRCUIT_BREAKER_OPEN = "circuit_breaker_open";
+
+    /**
+     * Indicates that a request was not sent because the application already sends as many requests at once as its
+     * bulkhead allows, and too many requests were waiting or the request waited for too long. See
+     * {@link BulkheadOptions}
+     */
+    public static final String TOO_MANY_CONCURRENT_REQUESTS = "too_many_concurrent_requests";
+
+    /**
+     * Indicates that a request did not complete within the timeout set in its parameters, and was aborted
+     */
+    public static final String REQUEST_TIMEOUT = "request_timeout";
 }
@@ -3,12 +3,15 @@
 
 package com.microsoft.aad.msal4j;
 
+import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTParser;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.experimental.Accessors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.text.ParseException;
@@ -21,6 +24,8 @@ import java.util.Date;
 final class AuthenticationResult implements IAuthenticationResult {
     private static final long serialVersionUID = 1L;
 
+    private static final Logger LOG = LoggerFactory.getLogger(AuthenticationResult.class);
+
     private final String accessToken;
 
     @Getter(value = AccessLevel.PACKAGE)
@@ -38,27 +43,49 @@ final class AuthenticationResult implements IAuthenticationResult {
 
     private final String idToken;
 
-    @Getter(value = AccessLevel.PACKAGE, lazy = true)
-    private final IdToken idTokenObject = getIdTokenObj();
+    //The ID token and the values derived from it below are only parsed when first requested, so that results which
+    //are only used for their access token (such as most cache hits) don't parse any JWT or JSON. Derived values are
+    //excluded from equals and hashCode, which would otherwise parse them.
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    @EqualsAndHashCode.Exclude
+    private final JWT parsedIdToken = parseIdToken();
 
-    private IdToken getIdTokenObj() {
+    private JWT parseIdToken() {
         if (StringHelper.isBlank(idToken)) {
             return null;
         }
         try {
-            String idTokenJson = JWTParser.parse(idToken).getParsedParts()[1].decodeToString();
-
-            return JsonHelper.convertJsonToObject(idTokenJson, IdToken.class);
+            return JWTParser.parse(idToken);
         } catch (ParseException e) {
-            e.printStackTrace();
+            throw new MsalClientException("Cached JWT could not be parsed: " + e.getMessage(), AuthenticationErrorCode.INVALID_JWT);
         }
-        return null;
+    }
+
+    @Getter(value = AccessLevel.PACKAGE, lazy = true)
+    @EqualsAndHashCode.Exclude
+    private final IdToken idTokenObject = getIdTokenObj();
+
+    private IdToken getIdTokenObj() {
+        JWT jwt;
+        try {
+            jwt = parsedIdToken();
+        } catch (MsalClientException e) {
+            LOG.warn(String.format("ID token could not be parsed: %s", e.getMessage()));
+            return null;
+        }
+        if (jwt == null) {
+            return null;
+        }
+        String idTokenJson = jwt.getParsedParts()[1].decodeToString();
+
+        return JsonHelper.convertJsonToObject(idTokenJson, IdToken.class);
     }
 
     @Getter(value = AccessLevel.PACKAGE)
     private final AccountCacheEntity accountCacheEntity;
 
     @Getter(lazy = true)
+    @EqualsAndHashCode.Exclude
     private final IAccount account = getAccount();
 
     private IAccount getAccount() {
@@ -69,16 +96,18 @@ final class AuthenticationResult implements IAuthenticationResult {
     }
 
     @Getter(lazy = true)
+    @EqualsAndHashCode.Exclude
     private final ITenantProfile tenantProfile = getTenantProfile();
 
     private ITenantProfile getTenantProfile() {
-        if (StringHelper.isBlank(idToken)) {
+        JWT jwt = parsedIdToken();
+        if (jwt == null) {
             return null;
         }
 
         try {
-            return new TenantProfile(JWTParser.parse(idToken).getJWTClaimsSet().getClaims(),
-                    getAccount().environment());
+            return new TenantProfile(jwt.getJWTClaimsSet().getClaims(),
+                    account().environment());
         } catch (ParseException e) {
             throw new MsalClientException("Cached JWT could not be parsed: " + e.getMessage(), AuthenticationErrorCode.INVALID_JWT);
         }
@@ -87,6 +116,7 @@ final class AuthenticationResult implements IAuthenticationResult {
     private String environment;
 
     @Getter(lazy = true)
+    @EqualsAndHashCode.Exclude
     private final Date expiresOnDate = new Date(expiresOn * 1000);
 
     private final String scopes;
@@ -27,13 +27,8 @@ abstract class AuthenticationResultSupplier implements Supplier<IAuthenticationR
 
     Authority getAuthorityWithPrefNetworkHost(String authority) throws MalformedURLException {
 
-        URL authorityUrl = new URL(authority);
-
-        if (msalRequest.requestContext().apiParameters().tenant() != null) {
-            authorityUrl = new URL(authority.replace(
-                    Authority.getTenant(authorityUrl, Authority.detectAuthorityType(authorityUrl)),
-                    msalRequest.requestContext().apiParameters().tenant()));
-        }
+        String tenant = msalRequest.requestContext().apiParameters().tenant();
+        URL authorityUrl = AuthorityCache.authorityUrl(authority, tenant);
 
         InstanceDiscoveryMetadataEntry discoveryMetadataEntry =
                 AadInstanceDiscoveryProvider.getMetadataEntry(
@@ -42,13 +37,13 @@ abstract class AuthenticationResultSupplier implements Supplier<IAuthenticationR
                         msalRequest,
                         clientApplication.serviceBundle());
 
-        URL updatedAuthorityUrl = new URL(
+        String preferredNetwork = discoveryMetadataEntry.preferredNetwork;
+
+        return AuthorityCache.authority(authority, tenant, preferredNetwork, () -> Authority.createAuthority(new URL(
                 authorityUrl.getProtocol(),
-                discoveryMetadataEntry.preferredNetwork,
+                preferredNetwork,
                 authorityUrl.getPort(),
-                authorityUrl.getFile());
-
-        return Authority.createAuthority(updatedAuthorityUrl);
+                authorityUrl.getFile())));
     }
 
     abstract AuthenticationResult execute() throws Exception;
@@ -66,13 +61,18 @@ abstract class AuthenticationResultSupplier implements Supplier<IAuthenticationR
                              apiEvent,
                              true)) {
             try {
+                //Requests cancelled or timed out while waiting for a thread are not started
+                msalRequest.requestContext().checkNotCancelled();
+                if (clientApplication instanceof AbstractClientApplicationBase) {
+                    OidcDiscoveryProvider.useLatestMetadata((AbstractClientApplicationBase) clientApplication);
+                }
                 result = execute();
                 apiEvent.setWasSuccessful(true);
 
                 if (result != null) {
                     logResult(result, msalRequest.headers());
 
-                    if (result.account() != null) {
+                    if (result.accountCacheEntity() != null) {
                         apiEvent.setTenantId(result.accountCacheEntity().realm());
                     }
                 }
@@ -114,34 +114,33 @@ abstract class AuthenticationResultSupplier implements Supplier<IAuthenticationR
     }
 
     private void logResult(AuthenticationResult result, HttpHeaders headers) {
-        if (!StringHelper.isBlank(result.accessToken())) {
-
-            String accessTokenHash = this.computeSha256Hash(result
-                    .accessToken());
-            if (!StringHelper.isBlank(result.refreshToken())) {
-                String refreshTokenHash = this.computeSha256Hash(result
-                        .refreshToken());
-                if (clientApplication.logPii()) {
-                    clientApplication.log.debug(LogHelper.createMessage(String.format(
-                                    "Access Token with hash '%s' and Refresh Token with hash '%s' returned",
-                                    accessTokenHash, refreshTokenHash),
-                            headers.getHeaderCorrelationIdValue()));
-                } else {
-                    clientApplication.log.debug(
-                            LogHelper.createMessage(
-                                    "Access Token and Refresh Token were returned",
-                                    headers.getHeaderCorrelationIdValue()));
-                }
+        if (StringHelper.isBlank(result.accessToken()) || !clientApplication.log.isDebugEnabled()) {
+            return;
+        }
+
+        //Token hashes are only computed when they are logged
+        if (!StringHelper.isBlank(result.refreshToken())) {
+            if (clientApplication.logPii()) {
+                clientApplication.log.debug(LogHelper.createMessage(String.format(
+                                "Access Token with hash '%s' and Refresh Token with hash '%s' returned",
+                                this.computeSha256Hash(result.accessToken()),
+                                this.computeSha256Hash(result.refreshToken())),
+                        headers.getHeaderCorrelationIdValue()));
             } else {
-                if (clientApplication.logPii()) {
-                    clientApplication.log.debug(LogHelper.createMessage(String.format(
-                                    "Access Token with hash '%s' returned", accessTokenHash),
-                            headers.getHeaderCorrelationIdValue()));
-                } else {
-                    clientApplication.log.debug(LogHelper.createMessage(
-                            "Access Token was returned",
-                            headers.getHeaderCorrelationIdValue()));
-                }
+                clientApplication.log.debug(
+                        LogHelper.createMessage(
+                                "Access Token and Refresh Token were returned",
+                                headers.getHeaderCorrelationIdValue()));
+            }
+        } else {
+            if (clientApplication.logPii()) {
+                clientApplication.log.debug(LogHelper.createMessage(String.format(
+                                "Access Token with hash '%s' returned", this.computeSha256Hash(result.accessToken())),
+                        headers.getHeaderCorrelationIdValue()));
+            } else {
+                clientApplication.log.debug(LogHelper.createMessage(
+                        "Access Token was returned",
+                        headers.getHeaderCorrelationIdValue()));
             }
         }
     }
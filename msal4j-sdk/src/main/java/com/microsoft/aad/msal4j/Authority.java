@@ -38,8 +38,18 @@ abstract class Authority {
 
     String deviceCodeEndpoint;
 
+    //Parsed from tokenEndpoint when first needed. Authorities are reused by requests, see AuthorityCache
+    private volatile URL tokenEndpointUrl;
+
     URL tokenEndpointUrl() throws MalformedURLException {
-        return new URL(tokenEndpoint);
+        URL url = tokenEndpointUrl;
+        String endpoint = tokenEndpoint();
+        //The token endpoint of some authorities is only set after they were created
+        if (url == null || !url.toString().equals(endpoint)) {
+            url = new URL(endpoint);
+            tokenEndpointUrl = url;
+        }
+        return url;
     }
 
     Authority(URL canonicalAuthorityUrl, AuthorityType authorityType) {
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded caches of the authority URLs and {@link Authority} instances created for requests, so that requests for
+ * the same authority, tenant override and preferred network reuse them instead of parsing URLs and deriving
+ * endpoints each time. Authorities don't depend on the application, so the caches are shared by all applications.
+ * When a cache is full, its least recently used entry is evicted.
+ */
+class AuthorityCache {
+
+    static final int MAX_SIZE = 1000;
+
+    private static final BoundedCache<URL> authorityUrls = new BoundedCache<>();
+    private static final BoundedCache<Authority> authorities = new BoundedCache<>();
+
+    private AuthorityCache() {
+    }
+
+    interface Loader<V> {
+        V load() throws MalformedURLException;
+    }
+
+    /**
+     * @param authority authority URL
+     * @param tenant    tenant which replaces the tenant of the authority, or null
+     * @return URL of the authority, with its tenant replaced if a tenant is given
+     */
+    static URL authorityUrl(String authority, String tenant) throws MalformedURLException {
+        return authorityUrls.get(Arrays.asList(authority, tenant), () -> {
+            URL authorityUrl = new URL(authority);
+            if (tenant == null) {
+                return authorityUrl;
+            }
+            return new URL(authority.replace(
+                    Authority.getTenant(authorityUrl, Authority.detectAuthorityType(authorityUrl)),
+                    tenant));
+        });
+    }
+
+    /**
+     * @param authority        authority URL
+     * @param tenant           tenant which replaces the tenant of the authority, or null
+     * @param preferredNetwork host which replaces the host of the authority, or null
+     * @param loader           creates the authority if it is not cached
+     */
+    static Authority authority(String authority, String tenant, String preferredNetwork, Loader<Authority> loader)
+            throws MalformedURLException {
+        return authorities.get(Arrays.asList(authority, tenant, preferredNetwork), loader);
+    }
+
+    static void clear() {
+        authorityUrls.clear();
+        authorities.clear();
+    }
+
+    static int size() {
+        return authorities.size();
+    }
+
+    private static class BoundedCache<V> {
+        private final Map<List<String>, V> entries = new LinkedHashMap<List<String>, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, V> eldest) {
+                return size() > MAX_SIZE;
+            }
+        };
+
+        //Values are created outside of the lock, so concurrent misses may create the same value more than once
+        V get(List<String> key, Loader<V> loader) throws MalformedURLException {
+            V value;
+            synchronized (entries) {
+                value = entries.get(key);
+            }
+            if (value == null) {
+                value = loader.load();
+                synchronized (entries) {
+                    entries.put(key, value);
+                }
+            }
+            return value;
+        }
+
+        void clear() {
+            synchronized (entries) {
+                entries.clear();
+            }
+        }
+
+        int size() {
+            synchronized (entries) {
+                return entries.size();
+            }
+        }
+    }
+}
@@ -67,6 +67,13 @@ public class AuthorizationCodeParameters implements IAcquireTokenParameters {
      */
     private String tenant;
 
+    /**
+     * Time in milliseconds after which the request fails with a {@link MsalClientException} with error code
+     * {@link AuthenticationErrorCode#REQUEST_TIMEOUT} if it has not completed, and stops sending HTTP requests.
+     * Must be greater than 0. If not set, the request is only limited by the timeouts of the HTTP client
+     */
+    private Long timeoutInMs;
+
     private static AuthorizationCodeParametersBuilder builder() {
 
         return new AuthorizationCodeParametersBuilder();
@@ -0,0 +1,95 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of HTTP requests sent at once by an application. See {@link BulkheadOptions} for details.
+ */
+class Bulkhead {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Bulkhead.class);
+
+    private final BulkheadOptions options;
+    //Fair, so that requests are sent in the order they started waiting
+    private final Semaphore permits;
+    private final AtomicInteger queuedRequests = new AtomicInteger();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    Bulkhead(BulkheadOptions options) {
+        this.options = options;
+        this.permits = new Semaphore(options.maxConcurrentRequests(), true);
+    }
+
+    /**
+     * Waits until a request can be sent, and must be followed by a call to {@link #release} once it completed
+     *
+     * @param requestContext context of the request the HTTP request is part of, whose timeout also limits the wait.
+     *                       May be null
+     * @throws MsalClientException if too many requests are waiting, no request completed in time, or the request
+     *                             timed out while waiting
+     */
+    void acquire(RequestContext requestContext) {
+        long waitInMs = options.maxWaitInMs();
+        boolean waitLimitedByTimeout = false;
+        if (requestContext != null && requestContext.remainingTimeInMs() < waitInMs) {
+            waitInMs = Math.max(requestContext.remainingTimeInMs(), 0);
+            waitLimitedByTimeout = true;
+        }
+
+        try {
+            //Unlike tryAcquire(), a timed tryAcquire does not take a permit ahead of requests which are already waiting
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+
+            if (queuedRequests.incrementAndGet() > options.maxQueueSize()) {
+                queuedRequests.decrementAndGet();
+                throw reject(String.format(
+                        "Request was not sent, since %d requests are already in progress and %d are waiting",
+                        options.maxConcurrentRequests(), options.maxQueueSize()));
+            }
+
+            try {
+                if (!permits.tryAcquire(waitInMs, TimeUnit.MILLISECONDS)) {
+                    if (waitLimitedByTimeout) {
+                        throw requestContext.timeoutException();
+                    }
+                    throw reject(String.format(
+                            "Request was not sent, since no other request completed within %d ms", waitInMs));
+                }
+            } finally {
+                queuedRequests.decrementAndGet();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MsalClientException(ex);
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    BulkheadStatistics statistics() {
+        return new BulkheadStatistics(
+                options.maxConcurrentRequests() - permits.availablePermits(),
+                queuedRequests.get(),
+                rejectedRequests.get());
+    }
+
+    private MsalClientException reject(String message) {
+        rejectedRequests.incrementAndGet();
+        LOG.warn(message);
+
+        return new MsalClientException(message, AuthenticationErrorCode.TOO_MANY_CONCURRENT_REQUESTS);
+    }
+}
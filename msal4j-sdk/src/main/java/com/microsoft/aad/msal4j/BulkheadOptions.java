@@ -0,0 +1,64 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+import static com.microsoft.aad.msal4j.ParameterValidationUtils.validateNotNegative;
+import static com.microsoft.aad.msal4j.ParameterValidationUtils.validatePositive;
+
+/**
+ * Configures a bulkhead for the HTTP requests made by an application, which limits how many requests it sends at
+ * once, so that a burst of token requests (for example, when many tokens are missing from the cache right after
+ * a deployment) doesn't flood the token endpoint and get throttled.
+ * <p>
+ * Requests sent while the limit is reached wait for a running request to complete. Requests fail with a
+ * {@link MsalClientException} with error code {@link AuthenticationErrorCode#TOO_MANY_CONCURRENT_REQUESTS} if too
+ * many requests are already waiting, or if they waited for longer than {@link #maxWaitInMs}. Requests whose own
+ * timeout expires while waiting fail with error code {@link AuthenticationErrorCode#REQUEST_TIMEOUT}. Waiting
+ * requests are sent in the order they started waiting. Tokens returned from the cache don't send any request, so
+ * they are not limited.
+ */
+@Builder
+@Accessors(fluent = true)
+@Getter
+public class BulkheadOptions {
+
+    /**
+     * Maximum number of HTTP requests the application sends at once
+     */
+    @Builder.Default
+    private int maxConcurrentRequests = 10;
+
+    /**
+     * Maximum number of HTTP requests waiting to be sent. Further requests fail immediately
+     */
+    @Builder.Default
+    private int maxQueueSize = 100;
+
+    /**
+     * Time in milliseconds after which a request which is still waiting to be sent fails
+     */
+    @Builder.Default
+    private long maxWaitInMs = 10000;
+
+    private BulkheadOptions(int maxConcurrentRequests, int maxQueueSize, long maxWaitInMs) {
+        validatePositive("maxConcurrentRequests", maxConcurrentRequests);
+        validateNotNegative("maxQueueSize", maxQueueSize);
+        validateNotNegative("maxWaitInMs", maxWaitInMs);
+
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitInMs = maxWaitInMs;
+    }
+
+    /**
+     * Builder for {@link BulkheadOptions}
+     */
+    public static BulkheadOptionsBuilder builder() {
+        return new BulkheadOptionsBuilder();
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * Snapshot of the HTTP requests limited by the bulkhead of an application. See {@link BulkheadOptions}
+ */
+@Accessors(fluent = true)
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class BulkheadStatistics {
+
+    /**
+     * Number of HTTP requests currently being sent
+     */
+    private final int inFlightRequests;
+
+    /**
+     * Number of HTTP requests currently waiting to be sent
+     */
+    private final int queuedRequests;
+
+    /**
+     * Number of HTTP requests which failed without being sent since the application was created, because too many
+     * requests were already waiting or because they waited for too long
+     */
+    private final long rejectedRequests;
+}
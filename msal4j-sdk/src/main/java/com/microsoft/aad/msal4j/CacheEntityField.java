@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Serialized property of a cache entity, used by the hand-written token cache serializers. Property names are the
+ * same as the names used in the {@link com.fasterxml.jackson.annotation.JsonProperty} annotations of the entities.
+ *
+ * @param <T> type of the cache entity
+ */
+class CacheEntityField<T> {
+
+    static final List<CacheEntityField<AccountCacheEntity>> ACCOUNT_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            new CacheEntityField<>("home_account_id", AccountCacheEntity::homeAccountId, AccountCacheEntity::homeAccountId),
+            new CacheEntityField<>("environment", AccountCacheEntity::environment, AccountCacheEntity::environment),
+            new CacheEntityField<>("realm", AccountCacheEntity::realm, AccountCacheEntity::realm),
+            new CacheEntityField<>("local_account_id", AccountCacheEntity::localAccountId, AccountCacheEntity::localAccountId),
+            new CacheEntityField<>("username", AccountCacheEntity::username, AccountCacheEntity::username),
+            new CacheEntityField<>("name", AccountCacheEntity::name, AccountCacheEntity::name),
+            new CacheEntityField<>("client_info", AccountCacheEntity::clientInfoStr, AccountCacheEntity::clientInfoStr),
+            new CacheEntityField<>("user_assertion_hash", AccountCacheEntity::userAssertionHash, AccountCacheEntity::userAssertionHash),
+            new CacheEntityField<>("authority_type", AccountCacheEntity::authorityType, AccountCacheEntity::authorityType)));
+
+    static final List<CacheEntityField<AccessTokenCacheEntity>> ACCESS_TOKEN_FIELDS = credentialFields(Arrays.asList(
+            new CacheEntityField<>("credential_type", AccessTokenCacheEntity::credentialType, AccessTokenCacheEntity::credentialType),
+            new CacheEntityField<>("realm", AccessTokenCacheEntity::realm, AccessTokenCacheEntity::realm),
+            new CacheEntityField<>("target", AccessTokenCacheEntity::target, AccessTokenCacheEntity::target),
+            new CacheEntityField<>("cached_at", AccessTokenCacheEntity::cachedAtString, AccessTokenCacheEntity::cachedAtString),
+            new CacheEntityField<>("expires_on", AccessTokenCacheEntity::expiresOnString, AccessTokenCacheEntity::expiresOnString),
+            new CacheEntityField<>("extended_expires_on", AccessTokenCacheEntity::extExpiresOnString, AccessTokenCacheEntity::extExpiresOnString),
+            new CacheEntityField<>("refresh_on", AccessTokenCacheEntity::refreshOnString, AccessTokenCacheEntity::refreshOnString)));
+
+    static final List<CacheEntityField<RefreshTokenCacheEntity>> REFRESH_TOKEN_FIELDS = credentialFields(Arrays.asList(
+            new CacheEntityField<>("credential_type", RefreshTokenCacheEntity::credentialType, RefreshTokenCacheEntity::credentialType),
+            new CacheEntityField<>("family_id", RefreshTokenCacheEntity::family_id, RefreshTokenCacheEntity::family_id)));
+
+    static final List<CacheEntityField<IdTokenCacheEntity>> ID_TOKEN_FIELDS = credentialFields(Arrays.asList(
+            new CacheEntityField<>("credential_type", IdTokenCacheEntity::credentialType, IdTokenCacheEntity::credentialType),
+            new CacheEntityField<>("realm", IdTokenCacheEntity::realm, IdTokenCacheEntity::realm)));
+
+    static final List<CacheEntityField<AppMetadataCacheEntity>> APP_METADATA_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            new CacheEntityField<>("client_id", AppMetadataCacheEntity::clientId, AppMetadataCacheEntity::clientId),
+            new CacheEntityField<>("environment", AppMetadataCacheEntity::environment, AppMetadataCacheEntity::environment),
+            new CacheEntityField<>("family_id", AppMetadataCacheEntity::familyId, AppMetadataCacheEntity::familyId)));
+
+    final String name;
+    final Function<T, String> getter;
+    final BiConsumer<T, String> setter;
+
+    private CacheEntityField(String name, Function<T, String> getter, BiConsumer<T, String> setter) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    private static <T extends Credential> List<CacheEntityField<T>> credentialFields(List<CacheEntityField<T>> fields) {
+        List<CacheEntityField<T>> credentialFields = new ArrayList<>(Arrays.asList(
+                new CacheEntityField<>("home_account_id", Credential::homeAccountId, Credential::homeAccountId),
+                new CacheEntityField<>("environment", Credential::environment, Credential::environment),
+                new CacheEntityField<>("client_id", Credential::clientId, Credential::clientId),
+                new CacheEntityField<>("secret", Credential::secret, Credential::secret),
+                new CacheEntityField<>("user_assertion_hash", Credential::userAssertionHash, Credential::userAssertionHash)));
+        credentialFields.addAll(fields);
+
+        return Collections.unmodifiableList(credentialFields);
+    }
+}
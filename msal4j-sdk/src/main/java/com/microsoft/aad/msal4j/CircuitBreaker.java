@@ -0,0 +1,188 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the outcome of requests to each endpoint, and rejects requests to endpoints whose circuit is open.
+ * See {@link CircuitBreakerOptions} for details.
+ */
+class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final CircuitBreakerOptions options;
+    private final Map<String, EndpointCircuit> circuits = new ConcurrentHashMap<>();
+
+    CircuitBreaker(CircuitBreakerOptions options) {
+        this.options = options;
+    }
+
+    static String endpoint(HttpRequest httpRequest) {
+        URL url = httpRequest.url();
+        return url.getHost() + (url.getPort() != -1 ? ":" + url.getPort() : "") + url.getPath();
+    }
+
+    /**
+     * Must be called before sending a request to the endpoint, and followed by a call to {@link #onSuccess} or
+     * {@link #onFailure} once the request completed, or to {@link #onNotSent} if it was not sent after all
+     *
+     * @throws MsalClientException if the circuit of the endpoint is open
+     */
+    void beforeRequest(String endpoint) {
+        EndpointCircuit circuit = circuits.computeIfAbsent(endpoint, k -> new EndpointCircuit());
+        if (!circuit.tryAcquire(options)) {
+            throw new MsalClientException(
+                    String.format("Request to %s was not sent, since too many recent requests to it failed", endpoint),
+                    AuthenticationErrorCode.CIRCUIT_BREAKER_OPEN);
+        }
+    }
+
+    void onSuccess(String endpoint) {
+        EndpointCircuit circuit = circuits.get(endpoint);
+        if (circuit != null) {
+            circuit.record(true, options, endpoint);
+        }
+    }
+
+    void onFailure(String endpoint) {
+        EndpointCircuit circuit = circuits.get(endpoint);
+        if (circuit != null) {
+            circuit.record(false, options, endpoint);
+        }
+    }
+
+    void onNotSent(String endpoint) {
+        EndpointCircuit circuit = circuits.get(endpoint);
+        if (circuit != null) {
+            circuit.release();
+        }
+    }
+
+    Map<String, CircuitBreakerState> states() {
+        Map<String, CircuitBreakerState> states = new TreeMap<>();
+        circuits.forEach((endpoint, circuit) -> states.put(endpoint, circuit.state()));
+        return states;
+    }
+
+    private static class EndpointCircuit {
+        private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+        private long openedAtInMs;
+        private long probeStartedAtInMs;
+        private int consecutiveFailures;
+
+        //Outcomes of the most recent requests, as a ring buffer
+        private boolean[] recentFailures;
+        private int recentRequestCount;
+        private int recentFailureCount;
+        private int nextIndex;
+
+        synchronized boolean tryAcquire(CircuitBreakerOptions options) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.currentTimeMillis() - openedAtInMs < options.openDurationInMs()) {
+                        return false;
+                    }
+                    //Let this request through to probe the endpoint
+                    state = CircuitBreakerState.HALF_OPEN;
+                    probeStartedAtInMs = System.currentTimeMillis();
+                    return true;
+                default:
+                    //A probe which doesn't complete (for example, because the HTTP client has no read timeout) must
+                    // not keep the circuit half-open forever, so this request probes the endpoint instead
+                    if (System.currentTimeMillis() - probeStartedAtInMs < options.openDurationInMs()) {
+                        return false;
+                    }
+                    probeStartedAtInMs = System.currentTimeMillis();
+                    return true;
+            }
+        }
+
+        synchronized void record(boolean success, CircuitBreakerOptions options, String endpoint) {
+            if (state == CircuitBreakerState.HALF_OPEN) {
+                if (success) {
+                    LOG.info("Probe request to {} succeeded, closing its circuit", endpoint);
+                    close();
+                } else {
+                    LOG.warn("Probe request to {} failed, opening its circuit again", endpoint);
+                    open();
+                }
+                return;
+            }
+
+            if (state == CircuitBreakerState.OPEN) {
+                //Completion of a request sent before the circuit opened
+                return;
+            }
+
+            consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+            recordRecentOutcome(!success, options.failureRateWindowSize());
+
+            boolean failureRateExceeded = recentRequestCount >= options.failureRateWindowSize() &&
+                    recentFailureCount >= options.failureRateThreshold() * recentRequestCount;
+
+            if (consecutiveFailures >= options.consecutiveFailureThreshold() || failureRateExceeded) {
+                LOG.warn("Too many requests to {} failed, opening its circuit for {} ms",
+                        endpoint, options.openDurationInMs());
+                open();
+            }
+        }
+
+        synchronized void release() {
+            if (state == CircuitBreakerState.HALF_OPEN) {
+                //The probe request was not sent, so the next request probes the endpoint instead
+                state = CircuitBreakerState.OPEN;
+            }
+        }
+
+        synchronized CircuitBreakerState state() {
+            return state;
+        }
+
+        private void recordRecentOutcome(boolean failure, int windowSize) {
+            if (windowSize <= 0) {
+                return;
+            }
+            if (recentFailures == null) {
+                recentFailures = new boolean[windowSize];
+            }
+
+            if (recentRequestCount == windowSize) {
+                if (recentFailures[nextIndex]) {
+                    recentFailureCount--;
+                }
+            } else {
+                recentRequestCount++;
+            }
+            recentFailures[nextIndex] = failure;
+            if (failure) {
+                recentFailureCount++;
+            }
+            nextIndex = (nextIndex + 1) % windowSize;
+        }
+
+        private void open() {
+            state = CircuitBreakerState.OPEN;
+            openedAtInMs = System.currentTimeMillis();
+        }
+
+        private void close() {
+            state = CircuitBreakerState.CLOSED;
+            consecutiveFailures = 0;
+            recentFailures = null;
+            recentRequestCount = 0;
+            recentFailureCount = 0;
+            nextIndex = 0;
+        }
+    }
+}
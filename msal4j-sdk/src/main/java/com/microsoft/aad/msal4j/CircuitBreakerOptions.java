@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+import static com.microsoft.aad.msal4j.ParameterValidationUtils.validatePositive;
+
+/**
+ * Configures a circuit breaker for the HTTP requests made by an application, which stops sending requests to an
+ * endpoint which keeps failing, such as a token endpoint or a managed identity endpoint which is unavailable.
+ * <p>
+ * Each endpoint, identified by its host and path, has its own circuit. A circuit opens after a number of consecutive
+ * failures, or if too many of the recent requests to the endpoint failed. While a circuit is open, requests to the
+ * endpoint fail immediately with a {@link MsalClientException} with error code
+ * {@link AuthenticationErrorCode#CIRCUIT_BREAKER_OPEN}. Once {@link #openDurationInMs} has passed, a single request
+ * is sent to probe the endpoint, which closes the circuit if it succeeds or opens it again if it fails.
+ * <p>
+ * Requests fail if the {@link IHttpClient} throws an exception or if the response has a 5xx status code.
+ */
+@Builder
+@Accessors(fluent = true)
+@Getter
+public class CircuitBreakerOptions {
+
+    /**
+     * Number of consecutive failed requests to an endpoint after which its circuit opens
+     */
+    @Builder.Default
+    private int consecutiveFailureThreshold = 5;
+
+    /**
+     * Fraction between 0 and 1 of the recent requests to an endpoint which, if they failed, opens its circuit
+     */
+    @Builder.Default
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * Number of recent requests to an endpoint used to calculate its failure rate. The failure rate is only used
+     * once that many requests were sent to the endpoint
+     */
+    @Builder.Default
+    private int failureRateWindowSize = 20;
+
+    /**
+     * Time in milliseconds for which a circuit stays open before a request is sent to probe the endpoint. If the
+     * probe didn't complete after this time, the next request probes the endpoint instead
+     */
+    @Builder.Default
+    private long openDurationInMs = 30000;
+
+    private CircuitBreakerOptions(int consecutiveFailureThreshold, double failureRateThreshold,
+                                  int failureRateWindowSize, long openDurationInMs) {
+        validatePositive("consecutiveFailureThreshold", consecutiveFailureThreshold);
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be greater than 0 and at most 1");
+        }
+        validatePositive("failureRateWindowSize", failureRateWindowSize);
+        validatePositive("openDurationInMs", openDurationInMs);
+
+        this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+        this.failureRateThreshold = failureRateThreshold;
+        this.failureRateWindowSize = failureRateWindowSize;
+        this.openDurationInMs = openDurationInMs;
+    }
+
+    /**
+     * Builder for {@link CircuitBreakerOptions}
+     */
+    public static CircuitBreakerOptionsBuilder builder() {
+        return new CircuitBreakerOptionsBuilder();
+    }
+}
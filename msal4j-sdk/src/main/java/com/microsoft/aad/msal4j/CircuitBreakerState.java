@@ -0,0 +1,25 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+/**
+ * State of the circuit of an endpoint, see {@link CircuitBreakerOptions}
+ */
+public enum CircuitBreakerState {
+
+    /**
+     * Requests are sent to the endpoint
+     */
+    CLOSED,
+
+    /**
+     * Requests to the endpoint fail without being sent
+     */
+    OPEN,
+
+    /**
+     * A request is being sent to probe the endpoint, other requests to the endpoint fail without being sent
+     */
+    HALF_OPEN
+}
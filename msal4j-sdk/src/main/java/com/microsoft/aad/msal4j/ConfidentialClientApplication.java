@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
 
 import static com.microsoft.aad.msal4j.ParameterValidationUtils.validateNotNull;
@@ -43,10 +44,24 @@ public class ConfidentialClientApplication extends AbstractClientApplicationBase
     @Getter
     private boolean sendX5c;
 
+    //Renews recently used client credential tokens in the background, null if refresh-ahead is not enabled
+    private TokenRefreshAheadScheduler<ConfidentialClientApplication, ClientCredentialParameters> refreshAheadScheduler;
+
     @Override
     public CompletableFuture<IAuthenticationResult> acquireToken(ClientCredentialParameters parameters) {
         validateNotNull("parameters", parameters);
 
+        CompletableFuture<IAuthenticationResult> future = executeClientCredentialRequest(parameters);
+
+        if (refreshAheadScheduler != null) {
+            List<Object> requestKey = TokenRequestCoalescer.requestKey(clientId(), authority(), parameters, null);
+            future.thenAccept(result -> refreshAheadScheduler.tokenUsed(requestKey, parameters, result));
+        }
+
+        return future;
+    }
+
+    private CompletableFuture<IAuthenticationResult> executeClientCredentialRequest(ClientCredentialParameters parameters) {
         RequestContext context = new RequestContext(
                 this,
                 PublicApi.ACQUIRE_TOKEN_FOR_CLIENT,
@@ -62,6 +77,22 @@ public class ConfidentialClientApplication extends AbstractClientApplicationBase
         return this.executeRequest(clientCredentialRequest);
     }
 
+    /**
+     * @return number of client credential tokens successfully renewed in the background, see
+     * {@link Builder#refreshAhead(boolean)}
+     */
+    public long refreshAheadSuccessCount() {
+        return refreshAheadScheduler == null ? 0 : refreshAheadScheduler.successCount();
+    }
+
+    /**
+     * @return number of failed attempts to renew client credential tokens in the background, see
+     * {@link Builder#refreshAhead(boolean)}
+     */
+    public long refreshAheadFailureCount() {
+        return refreshAheadScheduler == null ? 0 : refreshAheadScheduler.failureCount();
+    }
+
     @Override
     public CompletableFuture<IAuthenticationResult> acquireToken(OnBehalfOfParameters parameters) {
         validateNotNull("parameters", parameters);
@@ -89,6 +120,21 @@ public class ConfidentialClientApplication extends AbstractClientApplicationBase
         initClientAuthentication(builder.clientCredential);
 
         this.tenant = this.authenticationAuthority.tenant;
+
+        if (builder.refreshAhead) {
+            refreshAheadScheduler = TokenRefreshAheadScheduler.schedule(
+                    this,
+                    (application, parameters) -> application.executeClientCredentialRequest(
+                            ClientCredentialParameters.builder(parameters.scopes())
+                                    .skipCache(true)
+                                    .claims(parameters.claims())
+                                    .extraHttpHeaders(parameters.extraHttpHeaders())
+                                    .extraQueryParameters(parameters.extraQueryParameters())
+                                    .tenant(parameters.tenant())
+                                    .clientCredential(parameters.clientCredential())
+                                    .build()),
+                    serviceBundle.getScheduledExecutorService());
+        }
     }
 
     private void initClientAuthentication(IClientCredential clientCredential) {
@@ -191,6 +237,8 @@ public class ConfidentialClientApplication extends AbstractClientApplicationBase
 
         private Function<AppTokenProviderParameters, CompletableFuture<TokenProviderResult>> appTokenProvider;
 
+        private boolean refreshAhead;
+
         private Builder(String clientId, IClientCredential clientCredential) {
             super(clientId);
             this.clientCredential = clientCredential;
@@ -227,6 +275,25 @@ public class ConfidentialClientApplication extends AbstractClientApplicationBase
             throw new NullPointerException("appTokenProvider is null") ;
         }
 
+        /**
+         * Enables renewing client credential tokens in the background before they need to be refreshed, so that
+         * requests for them are served from the token cache. Tokens are renewed as long as they keep being requested,
+         * on the ScheduledExecutorService set with {@link #scheduledExecutorService(ScheduledExecutorService)}, or on
+         * a shared daemon thread if none was set. Renewal outcomes are counted by
+         * {@link ConfidentialClientApplication#refreshAheadSuccessCount()} and
+         * {@link ConfidentialClientApplication#refreshAheadFailureCount()}.
+         * <p>
+         * By default tokens are only refreshed when they are requested after needing a refresh.
+         *
+         * @param val true to renew tokens in the background
+         * @return instance of the Builder on which method was called
+         */
+        public ConfidentialClientApplication.Builder refreshAhead(boolean val) {
+            this.refreshAhead = val;
+
+            return self();
+        }
+
         @Override
         public ConfidentialClientApplication build() {
 
@@ -51,6 +51,7 @@ class DefaultHttpClient implements IHttpClient {
     private HttpResponse executeHttpGet(HttpRequest httpRequest) throws Exception {
 
         final HttpURLConnection conn = openConnection(httpRequest.url());
+        limitTimeouts(conn, httpRequest);
         configureAdditionalHeaders(conn, httpRequest);
 
         return readResponseFromConnection(conn);
@@ -59,6 +60,7 @@ class DefaultHttpClient implements IHttpClient {
     private HttpResponse executeHttpPost(HttpRequest httpRequest) throws Exception {
 
         final HttpURLConnection conn = openConnection(httpRequest.url());
+        limitTimeouts(conn, httpRequest);
         configureAdditionalHeaders(conn, httpRequest);
         conn.setRequestMethod("POST");
         conn.setDoOutput(true);
@@ -77,6 +79,22 @@ class DefaultHttpClient implements IHttpClient {
         }
     }
 
+    //If the token request has a timeout, the connection is not kept open for longer than the time left until it expires
+    private void limitTimeouts(HttpURLConnection conn, HttpRequest httpRequest) throws SocketTimeoutException {
+        if (httpRequest.deadlineInMs() == 0) {
+            return;
+        }
+
+        long remainingTimeInMs = httpRequest.deadlineInMs() - System.currentTimeMillis();
+        if (remainingTimeInMs <= 0) {
+            throw new SocketTimeoutException("Token request timed out before the HTTP request was sent");
+        }
+
+        int limit = (int) Math.min(remainingTimeInMs, Integer.MAX_VALUE);
+        conn.setConnectTimeout(conn.getConnectTimeout() == 0 ? limit : Math.min(conn.getConnectTimeout(), limit));
+        conn.setReadTimeout(conn.getReadTimeout() == 0 ? limit : Math.min(conn.getReadTimeout(), limit));
+    }
+
     HttpURLConnection openConnection(final URL finalURL)
             throws IOException {
         URLConnection connection;
@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link IInstanceDiscoveryMetadataStore} which stores metadata in a file. The file is replaced atomically where the
+ * file system supports it, so that applications reading it while it is written don't read partial data.
+ * Errors reading or writing the file are logged, and only cause instance discovery and region detection to be
+ * done again.
+ */
+public class FileInstanceDiscoveryMetadataStore implements IInstanceDiscoveryMetadataStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileInstanceDiscoveryMetadataStore.class);
+
+    private final Path file;
+    private final long timeToLiveInSeconds;
+
+    /**
+     * @param file file in which metadata is stored, which is created if it does not exist
+     */
+    public FileInstanceDiscoveryMetadataStore(Path file) {
+        this(file, 24 * 60 * 60);
+    }
+
+    /**
+     * @param file                file in which metadata is stored, which is created if it does not exist
+     * @param timeToLiveInSeconds time in seconds for which stored metadata is used
+     */
+    public FileInstanceDiscoveryMetadataStore(Path file, long timeToLiveInSeconds) {
+        ParameterValidationUtils.validateNotNull("file", file);
+
+        this.file = file;
+        this.timeToLiveInSeconds = timeToLiveInSeconds;
+    }
+
+    @Override
+    public String read() {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            LOG.warn("Could not read instance discovery metadata from {}: {}", file, ex.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void write(String data) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+
+            Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tempFile, data.getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException ex) {
+            LOG.warn("Could not write instance discovery metadata to {}: {}", file, ex.getMessage());
+        }
+    }
+
+    @Override
+    public long timeToLiveInSeconds() {
+        return timeToLiveInSeconds;
+    }
+}
@@ -6,11 +6,15 @@ package com.microsoft.aad.msal4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
 
 import static com.microsoft.aad.msal4j.Constants.POINT_DELIMITER;
 
@@ -26,10 +30,44 @@ class HttpHelper implements IHttpHelper {
     public static final int HTTP_STATUS_429 = 429;
     public static final int HTTP_STATUS_500 = 500;
 
+    private static final Set<String> UNWRAPPED_ERROR_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            AuthenticationErrorCode.CIRCUIT_BREAKER_OPEN,
+            AuthenticationErrorCode.TOO_MANY_CONCURRENT_REQUESTS,
+            AuthenticationErrorCode.REQUEST_TIMEOUT)));
+
     private IHttpClient httpClient;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
 
     HttpHelper(IHttpClient httpClient) {
+        this(httpClient, null, null);
+    }
+
+    HttpHelper(IHttpClient httpClient, RetryPolicy retryPolicy, CircuitBreakerOptions circuitBreakerOptions) {
+        this(httpClient, retryPolicy, circuitBreakerOptions, null);
+    }
+
+    HttpHelper(IHttpClient httpClient, RetryPolicy retryPolicy, CircuitBreakerOptions circuitBreakerOptions,
+               BulkheadOptions bulkheadOptions) {
         this.httpClient = httpClient;
+        this.retryPolicy = retryPolicy != null ? withDefaults(retryPolicy) : defaultRetryPolicy();
+        this.circuitBreaker = circuitBreakerOptions != null ? new CircuitBreaker(circuitBreakerOptions) : null;
+        this.bulkhead = bulkheadOptions != null ? new Bulkhead(bulkheadOptions) : null;
+    }
+
+    //Retry policy used if none was set on the application
+    RetryPolicy defaultRetryPolicy() {
+        return RetryPolicy.builder().build();
+    }
+
+    //Applies the defaults of this helper to the parts of an application's retry policy which it left unset
+    RetryPolicy withDefaults(RetryPolicy retryPolicy) {
+        return retryPolicy;
+    }
+
+    RetryPolicy retryPolicy() {
+        return retryPolicy;
     }
 
     public IHttpResponse executeHttpRequest(HttpRequest httpRequest,
@@ -49,11 +87,11 @@ class HttpHelper implements IHttpHelper {
             addRequestInfoToTelemetry(httpRequest, httpEvent);
 
             try {
-                httpResponse = executeHttpRequestWithRetries(httpRequest, httpClient);
+                httpResponse = executeHttpRequestWithRetries(httpRequest, httpClient, requestContext);
 
             } catch (Exception e) {
                 httpEvent.setOauthErrorCode(AuthenticationErrorCode.UNKNOWN);
-                throw new MsalClientException(e);
+                throw toMsalClientException(e);
             }
 
             addResponseInfoToTelemetry(httpResponse, httpEvent);
@@ -87,11 +125,11 @@ class HttpHelper implements IHttpHelper {
             addRequestInfoToTelemetry(httpRequest, httpEvent);
 
             try {
-                httpResponse = executeHttpRequestWithRetries(httpRequest, httpClient);
+                httpResponse = executeHttpRequestWithRetries(httpRequest, httpClient, requestContext);
 
             } catch (Exception e) {
                 httpEvent.setOauthErrorCode(AuthenticationErrorCode.UNKNOWN);
-                throw new MsalClientException(e);
+                throw toMsalClientException(e);
             }
 
             addResponseInfoToTelemetry(httpResponse, httpEvent);
@@ -111,7 +149,7 @@ class HttpHelper implements IHttpHelper {
         try {
             httpResponse = executeHttpRequestWithRetries(httpRequest, httpClient);
         } catch (Exception e) {
-            throw new MsalClientException(e);
+            throw toMsalClientException(e);
         }
 
         if (httpResponse.headers() != null) {
@@ -142,22 +180,151 @@ class HttpHelper implements IHttpHelper {
     }
 
     boolean isRetryable(IHttpResponse httpResponse) {
-        return httpResponse.statusCode() >= HTTP_STATUS_500 &&
+        return retryPolicy.isRetryableStatusCode(httpResponse.statusCode()) &&
                 getRetryAfterHeader(httpResponse) == null;
     }
 
     IHttpResponse executeHttpRequestWithRetries(HttpRequest httpRequest, IHttpClient httpClient)
             throws Exception {
-        IHttpResponse httpResponse = null;
-        for (int i = 0; i < RETRY_NUM; i++) {
-            httpResponse = httpClient.send(httpRequest);
-            if (!isRetryable(httpResponse)) {
-                break;
+        return executeHttpRequestWithRetries(httpRequest, httpClient, null);
+    }
+
+    /**
+     * @param requestContext context of the request the HTTP request is part of, whose timeout and cancellation stop
+     *                       retries. May be null
+     */
+    IHttpResponse executeHttpRequestWithRetries(HttpRequest httpRequest, IHttpClient httpClient,
+                                                RequestContext requestContext)
+            throws Exception {
+        long startTimeInMs = System.currentTimeMillis();
+
+        for (int attempt = 1; ; attempt++) {
+            String endpoint = beforeRequest(httpRequest, requestContext);
+
+            IHttpResponse httpResponse = null;
+            Exception exception = null;
+            try {
+                httpResponse = httpClient.send(httpRequest);
+            } catch (Exception ex) {
+                exception = ex;
+            }
+            afterRequest(endpoint, httpResponse, exception);
+
+            long delayInMs = getRetryDelayInMs(attempt, startTimeInMs, httpResponse, exception, requestContext);
+            if (delayInMs < 0) {
+                if (exception != null) {
+                    throw exception;
+                }
+                return httpResponse;
             }
-            Thread.sleep(RETRY_DELAY_MS);
+            //The delay is bounded by the request's timeout, see getRetryDelayInMs
+            Thread.sleep(delayInMs);
         }
+    }
 
-        return httpResponse;
+    /**
+     * Must be followed by a call to {@link #afterRequest} once the request completed, unless it throws
+     *
+     * @return endpoint of the request if it is tracked by the circuit breaker, otherwise null
+     * @throws MsalClientException   if the circuit of the endpoint is open, the bulkhead rejected the request, or
+     *                               the request timed out
+     * @throws CancellationException if the request was cancelled
+     */
+    private String beforeRequest(HttpRequest httpRequest, RequestContext requestContext) {
+        if (requestContext != null) {
+            requestContext.checkNotCancelled();
+            if (requestContext.deadlineInMs() != 0 &&
+                    (httpRequest.deadlineInMs() == 0 || requestContext.deadlineInMs() < httpRequest.deadlineInMs())) {
+                httpRequest.deadlineInMs(requestContext.deadlineInMs());
+            }
+        }
+
+        //The circuit is checked first, so that requests which would fail right away do not wait for the bulkhead
+        String endpoint = null;
+        if (circuitBreaker != null) {
+            endpoint = CircuitBreaker.endpoint(httpRequest);
+            circuitBreaker.beforeRequest(endpoint);
+        }
+
+        if (bulkhead != null) {
+            try {
+                bulkhead.acquire(requestContext);
+            } catch (RuntimeException ex) {
+                if (endpoint != null) {
+                    circuitBreaker.onNotSent(endpoint);
+                }
+                throw ex;
+            }
+        }
+        return endpoint;
+    }
+
+    private void afterRequest(String endpoint, IHttpResponse httpResponse, Throwable exception) {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+        if (endpoint == null) {
+            return;
+        }
+        if (exception != null || httpResponse == null || httpResponse.statusCode() >= HTTP_STATUS_500) {
+            circuitBreaker.onFailure(endpoint);
+        } else {
+            circuitBreaker.onSuccess(endpoint);
+        }
+    }
+
+    /**
+     * @return state of the circuit of each endpoint requests were sent to, or an empty map if the circuit breaker
+     * is not enabled
+     */
+    Map<String, CircuitBreakerState> circuitBreakerStates() {
+        return circuitBreaker == null ? Collections.emptyMap() : circuitBreaker.states();
+    }
+
+    /**
+     * @return statistics of the bulkhead, or null if it is not enabled
+     */
+    BulkheadStatistics bulkheadStatistics() {
+        return bulkhead == null ? null : bulkhead.statistics();
+    }
+
+    //Exceptions thrown by the HTTP client are wrapped, but not those thrown by the circuit breaker or the bulkhead, or
+    // when the request timed out or was cancelled, which identify the failure
+    private static RuntimeException toMsalClientException(Throwable exception) {
+        if (exception instanceof MsalClientException &&
+                UNWRAPPED_ERROR_CODES.contains(((MsalClientException) exception).errorCode())) {
+            return (MsalClientException) exception;
+        }
+        if (exception instanceof CancellationException) {
+            return (CancellationException) exception;
+        }
+        return new MsalClientException(exception);
+    }
+
+    /**
+     * @return delay in milliseconds before the request should be sent again, or -1 if it should not be retried
+     */
+    private long getRetryDelayInMs(int attempt, long startTimeInMs, IHttpResponse httpResponse, Throwable exception,
+                                   RequestContext requestContext) {
+        boolean retryable = exception != null ?
+                retryPolicy.isRetryableException(exception) :
+                isRetryable(httpResponse);
+        if (!retryable) {
+            return -1;
+        }
+
+        long delayInMs = retryPolicy.retryDelayInMs(attempt);
+        if (!retryPolicy.canRetry(attempt, startTimeInMs, delayInMs)) {
+            return -1;
+        }
+        //A retry which would be sent after the request timed out only delays reporting the failure
+        if (requestContext != null && requestContext.remainingTimeInMs() <= delayInMs) {
+            return -1;
+        }
+
+        log.debug(String.format("Retrying request after %d ms, attempt %d failed with %s",
+                delayInMs, attempt, exception != null ? exception.getClass().getSimpleName() : httpResponse.statusCode()));
+        return delayInMs;
     }
 
     private void checkForThrottling(RequestContext requestContext) {
@@ -3,50 +3,56 @@
 
 package com.microsoft.aad.msal4j;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 class HttpHelperManagedIdentity extends HttpHelper {
 
     HttpHelperManagedIdentity(IHttpClient httpClient) {
         super(httpClient);
     }
+
+    HttpHelperManagedIdentity(IHttpClient httpClient, RetryPolicy retryPolicy,
+                              CircuitBreakerOptions circuitBreakerOptions, BulkheadOptions bulkheadOptions) {
+        super(httpClient, retryPolicy, circuitBreakerOptions, bulkheadOptions);
+    }
+
     static final int RETRY_NUM = 3;
-    static final int RETRY_DELAY_MS = 1000;
+
+    static final Set<Integer> RETRYABLE_STATUS_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            404, //Not Found
+            408, // Request Timeout
+            429, // Too Many Requests
+            500, // Internal Server Error
+            503, // Service Unavailable
+            504 // Gateway Timeout
+    )));
 
     /**
      * For most flows, MSAL Java will attempt to retry a request if the response status code is 5xx
      * <p>
-     * However, for Managed Identity scenarios retry logic must be triggered only for a specific list of status codes
+     * However, for Managed Identity scenarios retry logic must be triggered only for a specific list of status codes,
+     * and there should be three retries with a 1 second delay
      */
     @Override
-    boolean isRetryable(IHttpResponse httpResponse) {
+    RetryPolicy defaultRetryPolicy() {
+        return RetryPolicy.builder()
+                .maxAttempts(RETRY_NUM + 1)
+                .backoffMultiplier(1)
+                .retryableStatusCodes(RETRYABLE_STATUS_CODES)
+                .build();
+    }
 
-        switch (httpResponse.statusCode()) {
-            case 404: //Not Found
-            case 408: // Request Timeout
-            case 429: // Too Many Requests
-            case 500: // Internal Server Error
-            case 503: // Service Unavailable
-            case 504: // Gateway Timeout
-                return true;
-            default:
-                return false;
-        }
+    @Override
+    RetryPolicy withDefaults(RetryPolicy retryPolicy) {
+        return retryPolicy.withDefaultStatusCodes(RETRYABLE_STATUS_CODES);
     }
 
+    //Unlike in other flows, Managed Identity requests are retried even if the response has a Retry-After header
     @Override
-    IHttpResponse executeHttpRequestWithRetries(HttpRequest httpRequest, IHttpClient httpClient)
-            throws Exception {
-        IHttpResponse httpResponse = null;
-
-        //For Managed Identity, there should be three retries with a 1 second delay
-        //  Starting at i = 0 for the first attempt, it will then loop 3 times (i <= RETRY_NUM)
-        for (int i = 0; i <= RETRY_NUM; i++) {
-            httpResponse = httpClient.send(httpRequest);
-            if (!isRetryable(httpResponse)) {
-                break;
-            }
-            Thread.sleep(RETRY_DELAY_MS);
-        }
-
-        return httpResponse;
+    boolean isRetryable(IHttpResponse httpResponse) {
+        return retryPolicy().isRetryableStatusCode(httpResponse.statusCode());
     }
 }
\ No newline at end of file
@@ -3,8 +3,10 @@
 
 package com.microsoft.aad.msal4j;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.experimental.Accessors;
 
 import java.net.MalformedURLException;
@@ -40,6 +42,12 @@ public class HttpRequest {
      */
     private String body;
 
+    //Time at which the token request this HTTP request is sent for times out, or 0 if it has no timeout
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    @EqualsAndHashCode.Exclude
+    private long deadlineInMs;
+
     HttpRequest(HttpMethod httpMethod, String url) {
         this.httpMethod = httpMethod;
         this.url = createUrlFromString(url);
@@ -19,4 +19,9 @@ interface IAcquireTokenParameters {
     String tenant();
 
     Map<String, String> extraQueryParameters();
+
+    //Time in milliseconds after which the request times out, or null if it has no timeout
+    default Long timeoutInMs() {
+        return null;
+    }
 }
@@ -80,6 +80,24 @@ interface IClientApplicationBase extends IApplicationBase {
     CompletableFuture<IAuthenticationResult> acquireTokenSilently(SilentParameters parameters)
             throws MalformedURLException;
 
+    /**
+     * Returns a token from the cache if one can be returned without any request to the authority, otherwise
+     * behaves like {@link #acquireTokenSilently(SilentParameters)}.
+     * <p>
+     * Unlike {@link #acquireTokenSilently(SilentParameters)}, the cache lookup happens on the calling thread, and when
+     * a valid token is found the returned {@link CompletableFuture} is already completed. This avoids the overhead
+     * of scheduling the lookup on an executor, which can matter for applications which request cached tokens very
+     * frequently.
+     *
+     * @param parameters instance of SilentParameters
+     * @return A {@link CompletableFuture} object representing the {@link IAuthenticationResult} of the call.
+     * @throws MalformedURLException if authorityUrl from parameters is malformed URL
+     */
+    default CompletableFuture<IAuthenticationResult> tryGetCachedToken(SilentParameters parameters)
+            throws MalformedURLException {
+        return acquireTokenSilently(parameters);
+    }
+
     /**
      * Returns accounts in the cache
      *
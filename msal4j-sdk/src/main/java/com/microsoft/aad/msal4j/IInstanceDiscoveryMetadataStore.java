@@ -0,0 +1,37 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+/**
+ * Interface representing a store for the metadata found through instance discovery, the OIDC metadata of
+ * {@link OidcAuthority OIDC authorities} and the region detected by an application, so that applications created later
+ * (for example, after a restart or in another replica of a service) can reuse them instead of sending discovery and
+ * region detection requests before their first token request.
+ * <p>
+ * The store is read when the application is built, and written each time the application found new metadata or
+ * detected its region. Stored metadata and regions are ignored once they were discovered or detected more than
+ * {@link #timeToLiveInSeconds()} ago, except for OIDC metadata, which is used until it expires as indicated by the
+ * Cache-Control header of its discovery response.
+ * <p>
+ * For a file-based implementation, see {@link FileInstanceDiscoveryMetadataStore}
+ */
+public interface IInstanceDiscoveryMetadataStore {
+
+    /**
+     * @return data last passed to {@link #write(String)}, or null if none was stored
+     */
+    String read();
+
+    /**
+     * @param data serialized metadata, which replaces any data stored before
+     */
+    void write(String data);
+
+    /**
+     * @return time in seconds after its discovery for which stored metadata is used. Defaults to one day
+     */
+    default long timeToLiveInSeconds() {
+        return 24 * 60 * 60;
+    }
+}
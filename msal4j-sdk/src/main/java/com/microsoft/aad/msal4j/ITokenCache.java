@@ -23,4 +23,45 @@ public interface ITokenCache {
      * @return serialized cache in json format
      */
     String serialize();
+
+    /**
+     * Deserialize a single partition of the token cache from json, replacing the cached entities of that partition
+     * and leaving other partitions untouched. If not overridden, the whole cache is deserialized.
+     *
+     * @param partitionKey key of the partition, as suggested by {@link ITokenCacheAccessContext#suggestedCacheKey()}
+     * @param data         serialized cache partition in json format
+     */
+    default void deserialize(String partitionKey, String data) {
+        deserialize(data);
+    }
+
+    /**
+     * Serialize a single partition of the token cache to json. If not overridden, the whole cache is serialized.
+     *
+     * @param partitionKey key of the partition, as suggested by {@link ITokenCacheAccessContext#suggestedCacheKey()}
+     * @return serialized cache partition in json format
+     */
+    default String serialize(String partitionKey) {
+        return serialize();
+    }
+
+    /**
+     * Deserialize token cache from the compact binary format produced by {@link #serializeBinary()}.
+     * If not overridden, the data is converted to json and deserialized with {@link #deserialize(String)}.
+     *
+     * @param data serialized cache in binary format
+     */
+    default void deserializeBinary(byte[] data) {
+        deserialize(TokenCache.convertBinaryToJson(data));
+    }
+
+    /**
+     * Serialize token cache to a compact binary format, which holds the same data as the json format in less space.
+     * If not overridden, the cache is serialized with {@link #serialize()} and converted to the binary format.
+     *
+     * @return serialized cache in binary format
+     */
+    default byte[] serializeBinary() {
+        return TokenCache.convertJsonToBinary(serialize());
+    }
 }
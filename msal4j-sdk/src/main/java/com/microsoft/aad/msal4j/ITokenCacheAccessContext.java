@@ -29,4 +29,16 @@ public interface ITokenCacheAccessContext {
      * @return a boolean value telling whether cache was changed
      */
     boolean hasCacheChanged();
+
+    /**
+     * Key of the cache partition holding the tokens for this cache access, which can be used to store the cache
+     * in smaller per-partition blobs via {@link ITokenCache#serialize(String)} and {@link ITokenCache#deserialize(String, String)}:
+     * the user assertion hash for on-behalf-of flows, the home account id for flows involving an account,
+     * and a combination of client id and tenant for client credential and managed identity flows.
+     *
+     * @return suggested cache partition key, or null if the cache access is not limited to a single partition
+     */
+    default String suggestedCacheKey() {
+        return null;
+    }
 }
@@ -3,6 +3,7 @@
 
 package com.microsoft.aad.msal4j;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 import lombok.experimental.Accessors;
@@ -24,4 +25,9 @@ class InstanceDiscoveryMetadataEntry {
 
     @JsonProperty("aliases")
     Set<String> aliases;
+
+    //Time at which the entry was returned by the instance discovery endpoint or derived from a detected region, or 0
+    // if it was not (for example, if it was set by the developer), in which case it never needs to be discovered again
+    @JsonIgnore
+    long discoveredAtInMs;
 }
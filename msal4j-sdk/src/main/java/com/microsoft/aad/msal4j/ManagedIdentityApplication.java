@@ -7,7 +7,10 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Class to be used to acquire tokens for managed identity.
@@ -27,6 +30,9 @@ public class ManagedIdentityApplication extends AbstractApplicationBase implemen
     @Deprecated
     ManagedIdentitySourceType managedIdentitySource = ManagedIdentityClient.getManagedIdentitySource();
 
+    //Renews recently used tokens in the background, null if refresh-ahead is not enabled
+    private TokenRefreshAheadScheduler<ManagedIdentityApplication, ManagedIdentityParameters> refreshAheadScheduler;
+
     @Getter(value = AccessLevel.PACKAGE)
     static IEnvironmentVariables environmentVariables;
 
@@ -40,20 +46,59 @@ public class ManagedIdentityApplication extends AbstractApplicationBase implemen
         super.tokenCache = sharedTokenCache;
         super.serviceBundle = new ServiceBundle(
                 builder.executorService,
+                builder.scheduledExecutorService,
                 new TelemetryManager(telemetryConsumer, builder.onlySendFailureTelemetry),
                 new HttpHelperManagedIdentity(builder.httpClient == null ?
                         new DefaultHttpClient(builder.proxy, builder.sslSocketFactory, builder.connectTimeoutForDefaultHttpClient, builder.readTimeoutForDefaultHttpClient) :
-                        builder.httpClient)
+                        builder.httpClient,
+                        builder.retryPolicy,
+                        builder.circuitBreakerOptions,
+                        builder.bulkheadOptions)
         );
         log = LoggerFactory.getLogger(ManagedIdentityApplication.class);
 
         this.managedIdentityId = builder.managedIdentityId;
         this.tenant = Constants.MANAGED_IDENTITY_DEFAULT_TENTANT;
+
+        if (builder.refreshAhead) {
+            refreshAheadScheduler = TokenRefreshAheadScheduler.schedule(
+                    this,
+                    (application, parameters) -> application.executeManagedIdentityRequest(
+                            ManagedIdentityParameters.builder(parameters.resource())
+                                    .forceRefresh(true)
+                                    .build()),
+                    serviceBundle.getScheduledExecutorService());
+        }
     }
 
     @Override
     public CompletableFuture<IAuthenticationResult> acquireTokenForManagedIdentity(ManagedIdentityParameters managedIdentityParameters)
             throws Exception {
+        CompletableFuture<IAuthenticationResult> future = executeManagedIdentityRequest(managedIdentityParameters);
+
+        if (refreshAheadScheduler != null) {
+            List<Object> requestKey = Collections.singletonList(managedIdentityParameters.resource());
+            future.thenAccept(result -> refreshAheadScheduler.tokenUsed(requestKey, managedIdentityParameters, result));
+        }
+
+        return future;
+    }
+
+    /**
+     * @return number of tokens successfully renewed in the background, see {@link Builder#refreshAhead(boolean)}
+     */
+    public long refreshAheadSuccessCount() {
+        return refreshAheadScheduler == null ? 0 : refreshAheadScheduler.successCount();
+    }
+
+    /**
+     * @return number of failed attempts to renew tokens in the background, see {@link Builder#refreshAhead(boolean)}
+     */
+    public long refreshAheadFailureCount() {
+        return refreshAheadScheduler == null ? 0 : refreshAheadScheduler.failureCount();
+    }
+
+    private CompletableFuture<IAuthenticationResult> executeManagedIdentityRequest(ManagedIdentityParameters managedIdentityParameters) {
         RequestContext requestContext = new RequestContext(
                 this,
                 managedIdentityId.getIdType() == ManagedIdentityIdType.SYSTEM_ASSIGNED ?
@@ -81,6 +126,7 @@ public class ManagedIdentityApplication extends AbstractApplicationBase implemen
 
         private String resource;
         private ManagedIdentityId managedIdentityId;
+        private boolean refreshAhead;
 
         private Builder(ManagedIdentityId managedIdentityId) {
             super(managedIdentityId.getIdType() == ManagedIdentityIdType.SYSTEM_ASSIGNED ?
@@ -94,6 +140,39 @@ public class ManagedIdentityApplication extends AbstractApplicationBase implemen
             return self();
         }
 
+        /**
+         * Enables renewing tokens in the background before they need to be refreshed, so that requests for them are
+         * served from the token cache. Tokens are renewed as long as they keep being requested, on the
+         * ScheduledExecutorService set with {@link #scheduledExecutorService(ScheduledExecutorService)}, or on a
+         * shared daemon thread if none was set. Renewal outcomes are counted by
+         * {@link ManagedIdentityApplication#refreshAheadSuccessCount()} and
+         * {@link ManagedIdentityApplication#refreshAheadFailureCount()}.
+         * <p>
+         * By default tokens are only refreshed when they are requested after needing a refresh.
+         *
+         * @param val true to renew tokens in the background
+         * @return instance of the Builder on which method was called
+         */
+        public Builder refreshAhead(boolean val) {
+            this.refreshAhead = val;
+            return self();
+        }
+
+        /**
+         * Sets the policy used to retry HTTP requests to the managed identity endpoint.
+         * <p>
+         * If not set, requests are sent at most four times, one second apart, if the response has a 404, 408, 429,
+         * 500, 503 or 504 status code, even if it has a Retry-After header. A policy which doesn't set
+         * {@link RetryPolicy#retryableStatusCodes()} also retries these status codes, rather than only 5xx ones.
+         *
+         * @param val an instance of RetryPolicy
+         * @return instance of the Builder on which method was called
+         */
+        @Override
+        public Builder retryPolicy(RetryPolicy val) {
+            return super.retryPolicy(val);
+        }
+
         @Override
         public ManagedIdentityApplication build() {
 
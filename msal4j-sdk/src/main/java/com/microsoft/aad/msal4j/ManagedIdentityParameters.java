@@ -27,6 +27,13 @@ public class ManagedIdentityParameters implements IAcquireTokenParameters {
     
     boolean forceRefresh;
 
+    /**
+     * Time in milliseconds after which the request fails with a {@link MsalClientException} with error code
+     * {@link AuthenticationErrorCode#REQUEST_TIMEOUT} if it has not completed, and stops sending HTTP requests.
+     * Must be greater than 0. If not set, the request is only limited by the timeouts of the HTTP client
+     */
+    Long timeoutInMs;
+
     @Override
     public Set<String> scopes() {
         return null;
@@ -11,6 +11,10 @@ public class OidcAuthority extends Authority {
     static final String WELL_KNOWN_OPENID_CONFIGURATION = ".well-known/openid-configuration";
     private static final String AUTHORITY_FORMAT = "https://%s/%s/";
 
+    //Metadata the endpoints are read from. Replaced as a whole when the metadata is refreshed, possibly by a background
+    // thread, so that requests never see endpoints of different responses
+    volatile OidcDiscoveryResponse discoveryResponse;
+
     OidcAuthority(URL authorityUrl) throws MalformedURLException {
         super(createOidcDiscoveryUrl(authorityUrl), AuthorityType.OIDC);
 
@@ -25,9 +29,29 @@ public class OidcAuthority extends Authority {
     }
 
     void setAuthorityProperties(OidcDiscoveryResponse instanceDiscoveryResponse) {
-        this.authorizationEndpoint = instanceDiscoveryResponse.authorizationEndpoint();
-        this.tokenEndpoint = instanceDiscoveryResponse.tokenEndpoint();
-        this.deviceCodeEndpoint = instanceDiscoveryResponse.deviceCodeEndpoint();
-        this.selfSignedJwtAudience = this.tokenEndpoint;
+        this.discoveryResponse = instanceDiscoveryResponse;
+    }
+
+    @Override
+    String authorizationEndpoint() {
+        OidcDiscoveryResponse response = discoveryResponse;
+        return response != null ? response.authorizationEndpoint() : null;
+    }
+
+    @Override
+    String tokenEndpoint() {
+        OidcDiscoveryResponse response = discoveryResponse;
+        return response != null ? response.tokenEndpoint() : null;
+    }
+
+    @Override
+    String deviceCodeEndpoint() {
+        OidcDiscoveryResponse response = discoveryResponse;
+        return response != null ? response.deviceCodeEndpoint() : null;
+    }
+
+    @Override
+    String selfSignedJwtAudience() {
+        return tokenEndpoint();
     }
 }
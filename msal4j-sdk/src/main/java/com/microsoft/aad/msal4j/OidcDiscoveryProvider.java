@@ -3,21 +3,234 @@
 
 package com.microsoft.aad.msal4j;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Retrieves the OIDC metadata of {@link OidcAuthority OIDC authorities}, and caches it for all applications of the
+ * process which use the same authority. Cached metadata expires as indicated by the Cache-Control header of the
+ * discovery response, and is refreshed in the background by requests made shortly before it expires.
+ */
 class OidcDiscoveryProvider {
 
+    private static final Logger LOG = LoggerFactory.getLogger(OidcDiscoveryProvider.class);
+
+    static final String CACHE_CONTROL_HEADER = "Cache-Control";
+    //Lifetime of metadata whose discovery response has no max-age directive
+    static final long DEFAULT_TIME_TO_LIVE_IN_SECONDS = 24 * 60 * 60;
+    //Fraction of its lifetime after which metadata is refreshed in the background
+    private static final double REFRESH_AFTER_LIFETIME_FRACTION = 0.75;
+    private static final long MIN_REFRESH_INTERVAL_MS = 60000;
+    private static final Pattern MAX_AGE_PATTERN =
+            Pattern.compile("(?:^|[,\\s])max-age\\s*=\\s*\"?(\\d+)", Pattern.CASE_INSENSITIVE);
+
+    //Cached metadata by OIDC discovery endpoint
+    static final ConcurrentHashMap<String, CachedOidcMetadata> cache = new ConcurrentHashMap<>();
+
+    //Discoveries in progress for each endpoint, which concurrently built applications wait for
+    private static final ConcurrentHashMap<String, CompletableFuture<Void>> inFlightDiscoveries = new ConcurrentHashMap<>();
+    //Time at which a background refresh of each endpoint's metadata was last started
+    private static final ConcurrentHashMap<String, Long> refreshAttempts = new ConcurrentHashMap<>();
+
     static OidcDiscoveryResponse performOidcDiscovery(OidcAuthority authority, AbstractClientApplicationBase clientApplication) {
+        String endpoint = authority.canonicalAuthorityUrl.toString();
+
+        CachedOidcMetadata cached = cache.get(endpoint);
+        if (cached != null && !cached.isExpired()) {
+            refreshIfStale(authority, clientApplication);
+            return cached.response;
+        }
+
+        //Only one discovery is sent per endpoint at a time, concurrently built applications use its result
+        CompletableFuture<Void> discovery = new CompletableFuture<>();
+        CompletableFuture<Void> inFlightDiscovery = inFlightDiscoveries.putIfAbsent(endpoint, discovery);
+        if (inFlightDiscovery != null) {
+            inFlightDiscovery.join();
+
+            cached = cache.get(endpoint);
+            if (cached != null && !cached.isExpired()) {
+                return cached.response;
+            }
+            //The discovery which was waited for failed or its response may not be cached, so this application
+            // sends its own
+            return discoverAndCache(authority, clientApplication);
+        }
+
+        try {
+            return discoverAndCache(authority, clientApplication);
+        } finally {
+            inFlightDiscoveries.remove(endpoint, discovery);
+            discovery.complete(null);
+        }
+    }
+
+    /**
+     * Updates the endpoints of the application's OIDC authority if its metadata was refreshed since they were set,
+     * and starts refreshing the metadata if it is about to expire. Does nothing for other authorities
+     */
+    static void useLatestMetadata(AbstractClientApplicationBase clientApplication) {
+        if (clientApplication.authenticationAuthority == null ||
+                clientApplication.authenticationAuthority.authorityType != AuthorityType.OIDC) {
+            return;
+        }
+        OidcAuthority authority = (OidcAuthority) clientApplication.authenticationAuthority;
+
+        CachedOidcMetadata cached = cache.get(authority.canonicalAuthorityUrl.toString());
+        if (cached == null) {
+            return;
+        }
+        if (cached.response != authority.discoveryResponse) {
+            LOG.debug("Using refreshed OIDC metadata of {}", authority.canonicalAuthorityUrl);
+            authority.setAuthorityProperties(cached.response);
+        }
+        refreshIfStale(authority, clientApplication);
+    }
+
+    private static OidcDiscoveryResponse discoverAndCache(OidcAuthority authority,
+                                                          AbstractClientApplicationBase clientApplication) {
+        String endpoint = authority.canonicalAuthorityUrl.toString();
         HttpRequest httpRequest = new HttpRequest(
                 HttpMethod.GET,
-                authority.canonicalAuthorityUrl.toString());
+                endpoint);
 
         IHttpResponse httpResponse = ((HttpHelper)clientApplication.serviceBundle.getHttpHelper()).executeHttpRequest(httpRequest);
 
-        OidcDiscoveryResponse response = JsonHelper.convertJsonToObject(httpResponse.body(), OidcDiscoveryResponse.class);
-
         if (httpResponse.statusCode() != HttpHelper.HTTP_STATUS_200) {
             throw MsalServiceExceptionFactory.fromHttpResponse(httpResponse);
         }
 
+        OidcDiscoveryResponse response = JsonHelper.convertJsonToObject(httpResponse.body(), OidcDiscoveryResponse.class);
+
+        long timeToLiveInSeconds = timeToLiveInSeconds(httpResponse);
+        if (timeToLiveInSeconds > 0) {
+            cache.put(endpoint, new CachedOidcMetadata(response, timeToLiveInSeconds));
+
+            if (clientApplication.persistedInstanceDiscoveryMetadata() != null) {
+                clientApplication.persistedInstanceDiscoveryMetadata().save(null);
+            }
+        } else {
+            cache.remove(endpoint);
+        }
+
         return response;
     }
+
+    //Metadata is refreshed in the background once most of its lifetime passed, so that requests and newly built
+    // applications keep using it without waiting for a discovery. Failed refreshes are retried by later requests
+    private static void refreshIfStale(OidcAuthority authority, AbstractClientApplicationBase clientApplication) {
+        String endpoint = authority.canonicalAuthorityUrl.toString();
+        CachedOidcMetadata cached = cache.get(endpoint);
+
+        long now = System.currentTimeMillis();
+        if (cached == null || now < cached.refreshAtInMs()) {
+            return;
+        }
+
+        //Only one refresh is started per endpoint, and failed refreshes are not retried right away
+        Long lastRefreshAttempt = refreshAttempts.get(endpoint);
+        if (lastRefreshAttempt != null && now - lastRefreshAttempt < MIN_REFRESH_INTERVAL_MS) {
+            return;
+        }
+        boolean refreshStarted = lastRefreshAttempt == null ?
+                refreshAttempts.putIfAbsent(endpoint, now) == null :
+                refreshAttempts.replace(endpoint, lastRefreshAttempt, now);
+        if (!refreshStarted) {
+            return;
+        }
+
+        LOG.debug("OIDC metadata of {} is about to expire, refreshing it in the background", endpoint);
+        Runnable refresh = () -> {
+            try {
+                authority.setAuthorityProperties(discoverAndCache(authority, clientApplication));
+            } catch (Exception ex) {
+                LOG.warn("Refreshing OIDC metadata of {} failed, the cached metadata will be used until it succeeds: {}",
+                        endpoint, ex.getMessage());
+            }
+        };
+
+        ExecutorService executorService = clientApplication.serviceBundle.getExecutorService();
+        try {
+            if (executorService != null) {
+                executorService.execute(refresh);
+            } else {
+                ForkJoinPool.commonPool().execute(refresh);
+            }
+        } catch (RejectedExecutionException ex) {
+            LOG.warn("Could not start refreshing OIDC metadata of {}: {}", endpoint, ex.getMessage());
+        }
+    }
+
+    /**
+     * @return number of seconds the discovery response may be cached for, based on its Cache-Control header.
+     * 0 if it must not be cached
+     */
+    static long timeToLiveInSeconds(IHttpResponse httpResponse) {
+        if (httpResponse.headers() == null) {
+            return DEFAULT_TIME_TO_LIVE_IN_SECONDS;
+        }
+
+        TreeMap<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(httpResponse.headers());
+        List<String> cacheControl = headers.get(CACHE_CONTROL_HEADER);
+        if (cacheControl == null || cacheControl.isEmpty()) {
+            return DEFAULT_TIME_TO_LIVE_IN_SECONDS;
+        }
+
+        String directives = String.join(",", cacheControl).toLowerCase();
+        if (directives.contains("no-store") || directives.contains("no-cache")) {
+            return 0;
+        }
+
+        Matcher maxAge = MAX_AGE_PATTERN.matcher(directives);
+        if (maxAge.find()) {
+            try {
+                return Long.parseLong(maxAge.group(1));
+            } catch (NumberFormatException ex) {
+                LOG.warn("Failed to parse max-age directive of Cache-Control header - NumberFormatException");
+            }
+        }
+        return DEFAULT_TIME_TO_LIVE_IN_SECONDS;
+    }
+
+    static class CachedOidcMetadata {
+
+        @JsonProperty("metadata")
+        OidcDiscoveryResponse response;
+
+        @JsonProperty("cached_at")
+        long cachedAtInMs;
+
+        @JsonProperty("expires_at")
+        long expiresAtInMs;
+
+        CachedOidcMetadata() {
+        }
+
+        CachedOidcMetadata(OidcDiscoveryResponse response, long timeToLiveInSeconds) {
+            this.response = response;
+            this.cachedAtInMs = System.currentTimeMillis();
+            this.expiresAtInMs = cachedAtInMs + timeToLiveInSeconds * 1000;
+        }
+
+        @JsonIgnore
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAtInMs;
+        }
+
+        long refreshAtInMs() {
+            return cachedAtInMs + (long) ((expiresAtInMs - cachedAtInMs) * REFRESH_AFTER_LIFETIME_FRACTION);
+        }
+    }
 }
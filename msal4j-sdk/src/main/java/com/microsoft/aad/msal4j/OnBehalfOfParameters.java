@@ -56,6 +56,13 @@ public class OnBehalfOfParameters implements IAcquireTokenParameters {
      */
     private String tenant;
 
+    /**
+     * Time in milliseconds after which the request fails with a {@link MsalClientException} with error code
+     * {@link AuthenticationErrorCode#REQUEST_TIMEOUT} if it has not completed, and stops sending HTTP requests.
+     * Must be greater than 0. If not set, the request is only limited by the timeouts of the HTTP client
+     */
+    private Long timeoutInMs;
+
     private static OnBehalfOfParametersBuilder builder() {
 
         return new OnBehalfOfParametersBuilder();
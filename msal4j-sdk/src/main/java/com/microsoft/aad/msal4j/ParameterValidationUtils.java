@@ -30,4 +30,16 @@ class ParameterValidationUtils {
             throw new IllegalArgumentException(name + " is null or empty");
         }
     }
+
+    static void validatePositive(String name, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be greater than 0");
+        }
+    }
+
+    static void validateNotNegative(String name, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+    }
 }
@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads the instance discovery metadata, OIDC metadata and detected region saved in an
+ * {@link IInstanceDiscoveryMetadataStore} by earlier applications, and saves them again once the application found new
+ * metadata or detected its region.
+ */
+class PersistedInstanceDiscoveryMetadata {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistedInstanceDiscoveryMetadata.class);
+
+    private final IInstanceDiscoveryMetadataStore store;
+
+    private String region;
+    //Time at which the region was detected, which is kept when saving it again so that loading and saving it doesn't
+    // extend its lifetime
+    private long regionDetectedAtInMs;
+
+    PersistedInstanceDiscoveryMetadata(IInstanceDiscoveryMetadataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Adds the stored metadata which didn't expire yet to the instance discovery cache
+     *
+     * @return stored region, or null if none was detected or it expired
+     */
+    synchronized String load() {
+        String data;
+        StoredData storedData;
+        try {
+            data = store.read();
+            if (StringHelper.isBlank(data)) {
+                return null;
+            }
+            storedData = JsonHelper.convertJsonToObject(data, StoredData.class);
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not load stored instance discovery metadata: {}", ex.getMessage());
+            return null;
+        }
+
+        //OIDC metadata expires as indicated by the response it was discovered from
+        if (storedData.oidcMetadata != null) {
+            storedData.oidcMetadata.forEach((endpoint, cachedMetadata) -> {
+                if (cachedMetadata.response != null && !cachedMetadata.isExpired()) {
+                    OidcDiscoveryProvider.cache.putIfAbsent(endpoint, cachedMetadata);
+                }
+            });
+        }
+
+        //Stored entries expire from the instance discovery cache as if they were never stored
+        int loadedCount = 0;
+        if (storedData.metadata != null && storedData.discoveredAt != null) {
+            for (Map.Entry<String, InstanceDiscoveryMetadataEntry> stored : storedData.metadata.entrySet()) {
+                Long discoveredAtInMs = storedData.discoveredAt.get(stored.getKey());
+                if (discoveredAtInMs != null && !isExpired(discoveredAtInMs)) {
+                    stored.getValue().discoveredAtInMs = discoveredAtInMs;
+                    AadInstanceDiscoveryProvider.cache.putIfAbsent(stored.getKey(), stored.getValue());
+                    loadedCount++;
+                }
+            }
+        }
+
+        if (storedData.region != null && !isExpired(storedData.regionDetectedAt)) {
+            region = storedData.region;
+            regionDetectedAtInMs = storedData.regionDetectedAt;
+        }
+
+        LOG.debug("Loaded stored instance discovery metadata for {} hosts", loadedCount);
+        return region;
+    }
+
+    /**
+     * Saves the current instance discovery cache and the detected region, if not null
+     */
+    synchronized void save(String detectedRegion) {
+        if (detectedRegion != null) {
+            region = detectedRegion;
+            regionDetectedAtInMs = System.currentTimeMillis();
+        }
+
+        StoredData storedData = new StoredData();
+        storedData.region = region;
+        storedData.regionDetectedAt = regionDetectedAtInMs;
+        storedData.metadata = new HashMap<>();
+        storedData.discoveredAt = new HashMap<>();
+        //Entries which were not discovered, such as the defaults cached when instance discovery failed, are not saved
+        AadInstanceDiscoveryProvider.cache.forEach((host, entry) -> {
+            if (entry.discoveredAtInMs() != 0 && !isExpired(entry.discoveredAtInMs())) {
+                storedData.metadata.put(host, entry);
+                storedData.discoveredAt.put(host, entry.discoveredAtInMs());
+            }
+        });
+        storedData.oidcMetadata = new HashMap<>();
+        OidcDiscoveryProvider.cache.forEach((endpoint, cachedMetadata) -> {
+            if (!cachedMetadata.isExpired()) {
+                storedData.oidcMetadata.put(endpoint, cachedMetadata);
+            }
+        });
+
+        try {
+            store.write(JsonHelper.mapper.writeValueAsString(storedData));
+        } catch (Exception ex) {
+            LOG.warn("Could not save instance discovery metadata: {}", ex.getMessage());
+        }
+    }
+
+    private boolean isExpired(long discoveredAtInMs) {
+        return System.currentTimeMillis() - discoveredAtInMs > store.timeToLiveInSeconds() * 1000;
+    }
+
+    static class StoredData {
+
+        @JsonProperty("region")
+        String region;
+
+        @JsonProperty("region_detected_at")
+        long regionDetectedAt;
+
+        @JsonProperty("metadata")
+        Map<String, InstanceDiscoveryMetadataEntry> metadata;
+
+        //Time in milliseconds at which the metadata of each host was discovered
+        @JsonProperty("discovered_at")
+        Map<String, Long> discoveredAt;
+
+        @JsonProperty("oidc_metadata")
+        Map<String, OidcDiscoveryProvider.CachedOidcMetadata> oidcMetadata;
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Detects the Azure region the process runs in by calling the IMDS endpoint, which is only available from within
+ * Azure VMs. Since the region doesn't depend on the application, it is detected at most once at a time for the whole
+ * process, and the outcome is cached: a detected region for a day, and a failed detection for ten minutes, so that
+ * applications which don't run in Azure don't wait for the IMDS endpoint to time out on each request.
+ */
+class RegionResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(RegionResolver.class);
+
+    // For information of the current api-version refer: https://docs.microsoft.com/en-us/azure/virtual-machines/windows/instance-metadata-service#versioning
+    private static final String DEFAULT_API_VERSION = "2020-06-01";
+    private static final String IMDS_ENDPOINT = "http://169.254.169.254/metadata/instance/compute/location?api-version=" + DEFAULT_API_VERSION + "&format=text";
+
+    static final long IMDS_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(2);
+    static final long REGION_FOUND_TTL_MS = TimeUnit.DAYS.toMillis(1);
+    static final long REGION_NOT_FOUND_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final AtomicReference<Detection> detection = new AtomicReference<>();
+
+    private RegionResolver() {
+    }
+
+    /**
+     * Starts detecting the region, unless a detection is in progress or its outcome is still cached
+     *
+     * @return future region, which completes with null if the region could not be detected
+     */
+    static CompletableFuture<String> detectRegion(AbstractApplicationBase application, ServiceBundle serviceBundle) {
+        while (true) {
+            Detection current = detection.get();
+            if (current != null && !current.isExpired()) {
+                return current.region;
+            }
+
+            Detection next = new Detection();
+            if (detection.compareAndSet(current, next)) {
+                next.start(application, serviceBundle);
+                return next.region;
+            }
+        }
+    }
+
+    //Forgets the outcome of the last detection
+    static void reset() {
+        detection.set(null);
+    }
+
+    private static class Detection {
+        private final CompletableFuture<String> region = new CompletableFuture<>();
+        private volatile long completedAtInMs;
+
+        boolean isExpired() {
+            if (!region.isDone()) {
+                return false;
+            }
+            long ttl = region.getNow(null) != null ? REGION_FOUND_TTL_MS : REGION_NOT_FOUND_TTL_MS;
+            return System.currentTimeMillis() - completedAtInMs > ttl;
+        }
+
+        void start(AbstractApplicationBase application, ServiceBundle serviceBundle) {
+            log.info("Starting call to IMDS endpoint.");
+
+            HttpRequest httpRequest = new HttpRequest(
+                    HttpMethod.GET,
+                    IMDS_ENDPOINT,
+                    Collections.singletonMap("Metadata", "true"));
+            //Limits how long the default HTTP client waits for the endpoint, which can't be reached outside of Azure
+            httpRequest.deadlineInMs(System.currentTimeMillis() + IMDS_TIMEOUT_MS);
+
+            //The detection has its own context, so that it isn't stopped when the request which started it is cancelled
+            RequestContext requestContext = new RequestContext(application, PublicApi.ACQUIRE_TOKEN_FOR_CLIENT, null);
+
+            ExecutorService executorService = serviceBundle.getExecutorService();
+            Executor executor = executorService != null ? executorService : ForkJoinPool.commonPool();
+            try {
+                //HTTP clients which ignore the timeout are not waited for
+                serviceBundle.getScheduledExecutorService().schedule(
+                        () -> fail("call to IMDS endpoint timed out"), IMDS_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+                executor.execute(() -> {
+                    try {
+                        IHttpResponse httpResponse = serviceBundle.getHttpHelper().executeHttpRequest(
+                                httpRequest, requestContext, serviceBundle);
+
+                        if (httpResponse.statusCode() == HttpHelper.HTTP_STATUS_200 &&
+                                !StringHelper.isBlank(httpResponse.body())) {
+                            log.info(String.format("Region retrieved from IMDS endpoint: %s", httpResponse.body()));
+                            complete(httpResponse.body());
+                        } else {
+                            fail(String.format("call to local IMDS failed with status code: %s, or response was empty",
+                                    httpResponse.statusCode()));
+                        }
+                    } catch (Exception ex) {
+                        //The IMDS endpoint is only available from within an Azure environment, so the most common cause
+                        //  of this exception will likely be java.net.SocketException: Network is unreachable: connect
+                        fail(String.format("exception during call to local IMDS endpoint: %s", ex.getMessage()));
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                fail(String.format("could not call IMDS endpoint: %s", ex.getMessage()));
+            }
+        }
+
+        private void fail(String reason) {
+            if (!region.isDone()) {
+                log.warn(String.format("Region could not be detected, %s. Detection will not be attempted again for %d minutes.",
+                        reason, TimeUnit.MILLISECONDS.toMinutes(REGION_NOT_FOUND_TTL_MS)));
+            }
+            complete(null);
+        }
+
+        private void complete(String detectedRegion) {
+            if (!region.isDone()) {
+                completedAtInMs = System.currentTimeMillis();
+                region.complete(detectedRegion);
+            }
+        }
+    }
+}
@@ -9,6 +9,9 @@ import lombok.Setter;
 import lombok.experimental.Accessors;
 
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+
+import static com.microsoft.aad.msal4j.ParameterValidationUtils.validatePositive;
 
 @Accessors(fluent = true)
 @Getter(AccessLevel.PACKAGE)
@@ -25,6 +28,10 @@ class RequestContext {
     private IAcquireTokenParameters apiParameters;
     private IApplicationBase clientApplication;
     private UserIdentifier userIdentifier;
+    //Time at which the request times out, or 0 if it has no timeout
+    private long deadlineInMs;
+    //Set once the future returned for the request was cancelled or timed out, so that no further work is done for it
+    private volatile boolean cancelled;
 
     public RequestContext(AbstractApplicationBase clientApplication,
                           PublicApi publicApi,
@@ -45,6 +52,11 @@ class RequestContext {
         this.publicApi = publicApi;
         this.authority = clientApplication.authority();
         this.apiParameters = apiParameters;
+
+        if (apiParameters != null && apiParameters.timeoutInMs() != null) {
+            validatePositive("timeoutInMs", apiParameters.timeoutInMs());
+            this.deadlineInMs = System.currentTimeMillis() + apiParameters.timeoutInMs();
+        }
     }
 
     public RequestContext(AbstractApplicationBase clientApplication,
@@ -55,6 +67,60 @@ class RequestContext {
         this.userIdentifier = userIdentifier;
     }
 
+    private RequestContext(RequestContext requestContext) {
+        this.telemetryRequestId = requestContext.telemetryRequestId;
+        this.clientId = requestContext.clientId;
+        this.correlationId = requestContext.correlationId;
+        this.publicApi = requestContext.publicApi;
+        this.applicationName = requestContext.applicationName;
+        this.applicationVersion = requestContext.applicationVersion;
+        this.authority = requestContext.authority;
+        this.apiParameters = requestContext.apiParameters;
+        this.clientApplication = requestContext.clientApplication;
+        this.userIdentifier = requestContext.userIdentifier;
+    }
+
+    /**
+     * @return copy of this context without its timeout and cancellation, for work which is shared with other
+     * requests or continues in the background, and so must not stop when this request is no longer waited for
+     */
+    RequestContext detached() {
+        return new RequestContext(this);
+    }
+
+    /**
+     * @return time in milliseconds left until the request times out, or Long.MAX_VALUE if it has no timeout
+     */
+    long remainingTimeInMs() {
+        return deadlineInMs == 0 ? Long.MAX_VALUE : deadlineInMs - System.currentTimeMillis();
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Called before each step of a request which may take time, such as sending an HTTP request, to stop requests
+     * which are no longer waited for
+     *
+     * @throws MsalClientException   if the request timed out
+     * @throws CancellationException if the future returned for the request was cancelled
+     */
+    void checkNotCancelled() {
+        if (deadlineInMs != 0 && remainingTimeInMs() <= 0) {
+            throw timeoutException();
+        }
+        if (cancelled) {
+            throw new CancellationException("Request was cancelled");
+        }
+    }
+
+    MsalClientException timeoutException() {
+        return new MsalClientException(
+                String.format("Request did not complete within its timeout of %d ms", apiParameters.timeoutInMs()),
+                AuthenticationErrorCode.REQUEST_TIMEOUT);
+    }
+
     private static String generateNewCorrelationId() {
         return UUID.randomUUID().toString();
     }
@@ -0,0 +1,141 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Configures how HTTP requests made by an application are retried when they fail with a retryable status code or
+ * exception. Retries are delayed with exponential backoff and optional jitter, so that many requests failing at
+ * the same time are not all retried at once.
+ * <p>
+ * The delay before a retry is waited on the thread which sends the request. A request is not retried if its timeout
+ * would expire before the retry is sent, and it is not sent again once it was cancelled.
+ * <p>
+ * By default, requests are sent at most twice, and retried after one second if the response has a 5xx status code
+ * and no Retry-After header. Exceptions thrown by the HTTP client are not retried by default.
+ */
+@Builder
+@Accessors(fluent = true)
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RetryPolicy {
+
+    /**
+     * Maximum number of times a request is sent, including the first attempt. A value of 1 disables retries
+     */
+    @Builder.Default
+    private int maxAttempts = HttpHelper.RETRY_NUM;
+
+    /**
+     * Delay in milliseconds before the first retry
+     */
+    @Builder.Default
+    private long initialDelayInMs = HttpHelper.RETRY_DELAY_MS;
+
+    /**
+     * Factor by which the delay is multiplied for each further retry
+     */
+    @Builder.Default
+    private double backoffMultiplier = 2;
+
+    /**
+     * Upper bound in milliseconds of the delay before a retry, before jitter is applied
+     */
+    @Builder.Default
+    private long maxDelayInMs = 30000;
+
+    /**
+     * Fraction between 0 and 1 of each delay which is randomized. For example, with a value of 0.5 a delay of
+     * one second becomes a random delay between half a second and a second
+     */
+    @Builder.Default
+    private double jitterFactor = 0;
+
+    /**
+     * Time in milliseconds since a request was first sent after which it is no longer retried. A value of 0 means
+     * that only {@link #maxAttempts} limits retries
+     */
+    @Builder.Default
+    private long maxTotalDurationInMs = 0;
+
+    /**
+     * Status codes for which requests are retried. If not set, requests are retried for 5xx status codes, or for
+     * managed identity applications, for the status codes documented in
+     * {@link ManagedIdentityApplication.Builder#retryPolicy(RetryPolicy)}
+     */
+    private Set<Integer> retryableStatusCodes;
+
+    /**
+     * Exceptions thrown by the {@link IHttpClient} for which requests are retried, including their subclasses
+     */
+    @Builder.Default
+    private Set<Class<? extends Exception>> retryableExceptions = Collections.emptySet();
+
+    /**
+     * Builder for {@link RetryPolicy}
+     */
+    public static RetryPolicyBuilder builder() {
+        return new RetryPolicyBuilder();
+    }
+
+    /**
+     * @return this policy if it sets its retryable status codes, otherwise a copy of it which retries the given ones
+     */
+    RetryPolicy withDefaultStatusCodes(Set<Integer> defaultStatusCodes) {
+        if (retryableStatusCodes != null) {
+            return this;
+        }
+        return new RetryPolicy(maxAttempts, initialDelayInMs, backoffMultiplier, maxDelayInMs, jitterFactor,
+                maxTotalDurationInMs, defaultStatusCodes, retryableExceptions);
+    }
+
+    boolean isRetryableStatusCode(int statusCode) {
+        return retryableStatusCodes == null ?
+                statusCode >= HttpHelper.HTTP_STATUS_500 :
+                retryableStatusCodes.contains(statusCode);
+    }
+
+    boolean isRetryableException(Throwable exception) {
+        for (Class<? extends Exception> retryableException : retryableExceptions) {
+            if (retryableException.isInstance(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param attempt number of times the request was already sent
+     * @return delay in milliseconds before the request is sent again
+     */
+    long retryDelayInMs(int attempt) {
+        double delay = Math.min(initialDelayInMs * Math.pow(backoffMultiplier, attempt - 1), maxDelayInMs);
+        double jitter = Math.min(Math.max(jitterFactor, 0), 1);
+
+        return (long) (delay - delay * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param attempt      number of times the request was already sent
+     * @param startTimeInMs time at which the request was first sent
+     * @param delayInMs    delay before the next attempt
+     * @return whether the request may be sent again after the delay
+     */
+    boolean canRetry(int attempt, long startTimeInMs, long delayInMs) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        return maxTotalDurationInMs <= 0 ||
+                System.currentTimeMillis() + delayInMs - startTimeInMs <= maxTotalDurationInMs;
+    }
+}
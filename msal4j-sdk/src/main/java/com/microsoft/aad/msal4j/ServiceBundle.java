@@ -4,10 +4,16 @@
 package com.microsoft.aad.msal4j;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 class ServiceBundle {
 
+    //Shared by all applications which do not provide their own ScheduledExecutorService, created on first use
+    private static volatile ScheduledExecutorService defaultScheduledExecutorService;
+
     private ExecutorService executorService;
+    private ScheduledExecutorService scheduledExecutorService;
     private TelemetryManager telemetryManager;
     private IHttpHelper httpHelper;
     private ServerSideTelemetry serverSideTelemetry;
@@ -20,10 +26,42 @@ class ServiceBundle {
         serverSideTelemetry = new ServerSideTelemetry();
     }
 
+    ServiceBundle(ExecutorService executorService, ScheduledExecutorService scheduledExecutorService,
+                  TelemetryManager telemetryManager, IHttpHelper httpHelper) {
+        this(executorService, telemetryManager, httpHelper);
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
     ExecutorService getExecutorService() {
         return executorService;
     }
 
+    /**
+     * @return ScheduledExecutorService set by the developer, or otherwise one shared by all applications
+     * which runs tasks on a single daemon thread
+     */
+    ScheduledExecutorService getScheduledExecutorService() {
+        if (scheduledExecutorService != null) {
+            return scheduledExecutorService;
+        }
+        return getDefaultScheduledExecutorService();
+    }
+
+    private static ScheduledExecutorService getDefaultScheduledExecutorService() {
+        if (defaultScheduledExecutorService == null) {
+            synchronized (ServiceBundle.class) {
+                if (defaultScheduledExecutorService == null) {
+                    defaultScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "msal4j-scheduler");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return defaultScheduledExecutorService;
+    }
+
     TelemetryManager getTelemetryManager() {
         return telemetryManager;
     }
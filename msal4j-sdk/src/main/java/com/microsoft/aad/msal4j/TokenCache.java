@@ -4,16 +4,25 @@
 package com.microsoft.aad.msal4j;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.nimbusds.jwt.JWTParser;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +34,9 @@ public class TokenCache implements ITokenCache {
 
     protected static final int MIN_ACCESS_TOKEN_EXPIRE_IN_SEC = 5 * 60;
 
+    //When the access token limit is exceeded, this fraction of the limit is freed at once so eviction is not run on every write
+    private static final int ACCESS_TOKEN_EVICTION_BATCH_DIVISOR = 10;
+
     transient private ReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
@@ -43,6 +55,17 @@ public class TokenCache implements ITokenCache {
     public TokenCache() {
     }
 
+    /**
+     * Constructor for token cache holding a bounded number of access tokens
+     *
+     * @param tokenCacheAccessAspect {@link ITokenCacheAccessAspect}
+     * @param accessTokenSizeLimit   maximum number of access tokens held by the cache, or 0 for no limit
+     */
+    TokenCache(ITokenCacheAccessAspect tokenCacheAccessAspect, int accessTokenSizeLimit) {
+        this(tokenCacheAccessAspect);
+        this.accessTokenSizeLimit = accessTokenSizeLimit;
+    }
+
     @JsonProperty("AccessToken")
     Map<String, AccessTokenCacheEntity> accessTokens = new LinkedHashMap<>();
 
@@ -60,101 +83,452 @@ public class TokenCache implements ITokenCache {
 
     transient ITokenCacheAccessAspect tokenCacheAccessAspect;
 
-    private transient String serializedCachedSnapshot;
+    //Properties of the deserialized cache which are not known to this library, written back on serialization so that
+    // caches shared with other libraries are preserved. Null if there are none, see TokenCacheJsonSerializer
+    transient ObjectNode unknownProperties;
+
+    private final transient TokenCacheChangeTracker changeTracker = new TokenCacheChangeTracker();
+
+    private transient AccessTokenCacheIndex accessTokenIndex = new AccessTokenCacheIndex();
+
+    private transient int accessTokenSizeLimit;
+
+    private final transient AtomicLong expiredAccessTokenEvictions = new AtomicLong();
+
+    private final transient AtomicLong sizeLimitAccessTokenEvictions = new AtomicLong();
+
+    private final transient AtomicLong sweptEntities = new AtomicLong();
+
+    //Number of times entities were written to the cache, guarded by the write lock
+    private transient long writeCount;
+
+    /**
+     * @return number of expired access tokens evicted from the cache because its access token size limit was exceeded
+     */
+    public long expiredAccessTokenEvictions() {
+        return expiredAccessTokenEvictions.get();
+    }
+
+    /**
+     * @return number of unexpired, least recently used access tokens evicted from the cache because its
+     * access token size limit was exceeded
+     */
+    public long sizeLimitAccessTokenEvictions() {
+        return sizeLimitAccessTokenEvictions.get();
+    }
+
+    /**
+     * @return number of expired access tokens, and of ID tokens and accounts which no longer had any access or refresh
+     * token, removed from the cache by the sweeps enabled with
+     * {@link AbstractClientApplicationBase.Builder#expiredTokenSweepInterval(long)}
+     */
+    public long sweptEntities() {
+        return sweptEntities.get();
+    }
 
     @Override
     public void deserialize(String data) {
         if (StringHelper.isBlank(data)) {
             return;
         }
-        serializedCachedSnapshot = data;
 
-        TokenCache deserializedCache = JsonHelper.convertJsonToObject(data, TokenCache.class);
+        try (JsonParser parser = JsonHelper.mapper.getFactory().createParser(data)) {
+            deserialize(TokenCacheJsonSerializer.read(parser));
+        } catch (IOException e) {
+            throw new MsalClientException(e);
+        }
+    }
 
+    /**
+     * Deserialize token cache from json, reading it from a stream rather than from a String. The stream is not closed.
+     *
+     * @param data stream of serialized cache in json format
+     */
+    public void deserialize(InputStream data) {
+        try (JsonParser parser = JsonHelper.mapper.getFactory().createParser(data)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            deserialize(TokenCacheJsonSerializer.read(parser));
+        } catch (IOException e) {
+            throw new MsalClientException(e);
+        }
+    }
+
+    private void deserialize(TokenCache deserializedCache) {
         lock.writeLock().lock();
         try {
+            synchronized (changeTracker) {
+                this.unknownProperties = deserializedCache.unknownProperties;
+                changeTracker.clear();
+            }
             this.accounts = deserializedCache.accounts;
             this.accessTokens = deserializedCache.accessTokens;
+            this.accessTokenIndex = AccessTokenCacheIndex.create(this.accessTokens);
+            evictAccessTokensOverSizeLimit();
             this.refreshTokens = deserializedCache.refreshTokens;
             this.idTokens = deserializedCache.idTokens;
             this.appMetadata = deserializedCache.appMetadata;
+            writeCount++;
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    private static void mergeJsonObjects(JsonNode old, JsonNode update) {
-        mergeRemovals(old, update);
-        mergeUpdates(old, update);
+    @Override
+    public String serialize() {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JsonHelper.mapper.getFactory().createGenerator(writer)) {
+            serialize(generator);
+        } catch (IOException e) {
+            throw new MsalClientException(e);
+        }
+        return writer.toString();
     }
 
-    private static void mergeUpdates(JsonNode old, JsonNode update) {
-        Iterator<String> fieldNames = update.fieldNames();
-        while (fieldNames.hasNext()) {
-            String uKey = fieldNames.next();
-            JsonNode uValue = update.get(uKey);
+    /**
+     * Serialize token cache to json, writing it to a stream rather than to a String. The stream is not closed.
+     *
+     * @param out stream to which the serialized cache is written in json format, using UTF-8 encoding
+     */
+    public void serialize(OutputStream out) {
+        try (JsonGenerator generator = JsonHelper.mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            serialize(generator);
+        } catch (IOException e) {
+            throw new MsalClientException(e);
+        }
+    }
 
-            // add new property
-            if (!old.has(uKey)) {
-                if (!uValue.isNull() &&
-                        !(uValue.isObject() && uValue.size() == 0)) {
-                    ((ObjectNode) old).set(uKey, uValue);
-                }
+    private void serialize(JsonGenerator generator) throws IOException {
+        lock.readLock().lock();
+        try {
+            //Serialization resets the tracked changes, so concurrent serializations holding the read lock must not interleave
+            synchronized (changeTracker) {
+                TokenCacheJsonSerializer.write(generator, this);
+                resetChanges();
             }
-            // merge old and new property
-            else {
-                JsonNode oValue = old.get(uKey);
-                if (uValue.isObject()) {
-                    mergeUpdates(oValue, uValue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deserializeBinary(byte[] data) {
+        if (data == null || data.length == 0) {
+            return;
+        }
+        deserialize(TokenCacheBinarySerializer.read(data));
+    }
+
+    @Override
+    public byte[] serializeBinary() {
+        lock.readLock().lock();
+        try {
+            synchronized (changeTracker) {
+                byte[] data = TokenCacheBinarySerializer.write(this);
+                resetChanges();
+                return data;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Converts a token cache serialized in json format to the compact binary format, without loss of data
+     *
+     * @param data serialized cache in json format
+     * @return serialized cache in binary format
+     */
+    public static byte[] convertJsonToBinary(String data) {
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.deserialize(data);
+        return tokenCache.serializeBinary();
+    }
+
+    /**
+     * Converts a token cache serialized in the compact binary format to json format, without loss of data
+     *
+     * @param data serialized cache in binary format
+     * @return serialized cache in json format
+     */
+    public static String convertBinaryToJson(byte[] data) {
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.deserializeBinary(data);
+        return tokenCache.serialize();
+    }
+
+    /**
+     * Serializes the changes made to the cache since it was last serialized or deserialized, as a JSON merge patch
+     * (RFC 7396) against the previously serialized cache: updated entities are included in full, and removed entities
+     * are included with a null value, in the same sections as in the full cache format.
+     * <p>
+     * Applying the returned patch to the previously serialized cache gives the same result as {@link #serialize()},
+     * and like {@link #serialize()}, this method resets the tracked changes. If the cache was not serialized or
+     * deserialized before, the whole cache is returned.
+     *
+     * @return serialized cache changes in json format
+     */
+    public String serializeChanges() {
+        StringWriter writer = new StringWriter();
+        lock.readLock().lock();
+        try (JsonGenerator generator = JsonHelper.mapper.getFactory().createGenerator(writer)) {
+            synchronized (changeTracker) {
+                //Without a previously serialized cache, the changes are the whole cache
+                if (changeTracker.enabled()) {
+                    TokenCacheJsonSerializer.writeChanges(generator, this, changeTracker);
                 } else {
-                    ((ObjectNode) old).set(uKey, uValue);
+                    TokenCacheJsonSerializer.write(generator, this);
+                }
+                resetChanges();
+            }
+        } catch (IOException e) {
+            throw new MsalClientException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Clears the tracked changes, and drops the unknown properties of removed entities
+     */
+    private void resetChanges() {
+        if (unknownProperties != null) {
+            for (String section : TokenCacheChangeTracker.SECTIONS) {
+                JsonNode unknownSectionProperties = unknownProperties.get(section);
+                if (unknownSectionProperties instanceof ObjectNode) {
+                    ((ObjectNode) unknownSectionProperties).remove(changeTracker.removedKeys(section));
                 }
             }
         }
+        changeTracker.clear();
     }
 
-    private static void mergeRemovals(JsonNode old, JsonNode update) {
-        Set<String> msalEntities =
-                new HashSet<>(Arrays.asList("Account", "AccessToken", "RefreshToken", "IdToken", "AppMetadata"));
+    private <T> void putEntity(Map<String, T> entities, String section, String key, T entity) {
+        entities.put(key, entity);
+        changeTracker.updated(section, key);
+        writeCount++;
+    }
 
-        for (String msalEntity : msalEntities) {
-            JsonNode oldEntries = old.get(msalEntity);
-            JsonNode newEntries = update.get(msalEntity);
-            if (oldEntries != null) {
-                Iterator<Map.Entry<String, JsonNode>> iterator = oldEntries.fields();
+    private <T> void removeEntities(Map<String, T> entities, String section, Predicate<T> predicate) {
+        Iterator<Map.Entry<String, T>> iterator = entities.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, T> entry = iterator.next();
+            if (predicate.test(entry.getValue())) {
+                iterator.remove();
+                changeTracker.removed(section, entry.getKey());
+            }
+        }
+    }
 
-                while (iterator.hasNext()) {
-                    Map.Entry<String, JsonNode> oEntry = iterator.next();
+    /**
+     * Deserializes a single cache partition, replacing the cached entities belonging to the partition with the
+     * deserialized ones. Entities of other partitions are left untouched.
+     *
+     * @param partitionKey key of the partition, see {@link ITokenCacheAccessContext#suggestedCacheKey()}.
+     *                     If null, the whole cache is deserialized
+     * @param data         serialized cache partition in json format
+     */
+    @Override
+    public void deserialize(String partitionKey, String data) {
+        if (partitionKey == null) {
+            deserialize(data);
+            return;
+        }
+        if (StringHelper.isBlank(data)) {
+            return;
+        }
 
-                    String key = oEntry.getKey();
-                    if (newEntries == null || !newEntries.has(key)) {
-                        iterator.remove();
-                    }
-                }
+        TokenCache deserializedCache;
+        try (JsonParser parser = JsonHelper.mapper.getFactory().createParser(data)) {
+            deserializedCache = TokenCacheJsonSerializer.read(parser);
+        } catch (IOException e) {
+            throw new MsalClientException(e);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<String> homeAccountIds = getPartitionHomeAccountIds(partitionKey);
+
+            //Entities of the partition are tracked as changes, so that they are included in serializeChanges()
+            removeAccessTokens(at -> partitionKey.equals(getPartitionKey(at)));
+            removeEntities(refreshTokens, TokenCacheChangeTracker.REFRESH_TOKEN,
+                    rt -> partitionKey.equals(getPartitionKey(rt)));
+            removeEntities(idTokens, TokenCacheChangeTracker.ID_TOKEN,
+                    idToken -> partitionKey.equals(getPartitionKey(idToken)));
+            removeEntities(accounts, TokenCacheChangeTracker.ACCOUNT,
+                    account -> isInPartition(account, partitionKey, homeAccountIds));
+
+            deserializedCache.accounts.forEach((key, account) ->
+                    putEntity(accounts, TokenCacheChangeTracker.ACCOUNT, key, account));
+            deserializedCache.refreshTokens.forEach((key, rt) ->
+                    putEntity(refreshTokens, TokenCacheChangeTracker.REFRESH_TOKEN, key, rt));
+            deserializedCache.idTokens.forEach((key, idToken) ->
+                    putEntity(idTokens, TokenCacheChangeTracker.ID_TOKEN, key, idToken));
+            deserializedCache.appMetadata.forEach((key, metadata) ->
+                    putEntity(appMetadata, TokenCacheChangeTracker.APP_METADATA, key, metadata));
+            deserializedCache.accessTokens.forEach(this::indexAccessToken);
+            synchronized (changeTracker) {
+                copyUnknownProperties(deserializedCache, this);
             }
+            evictAccessTokensOverSizeLimit();
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Serializes a single cache partition, in the same format as the whole cache. App metadata is not partitioned,
+     * and is included in every serialized partition.
+     *
+     * @param partitionKey key of the partition, see {@link ITokenCacheAccessContext#suggestedCacheKey()}.
+     *                     If null, the whole cache is serialized
+     * @return serialized cache partition in json format
+     */
     @Override
-    public String serialize() {
+    public String serialize(String partitionKey) {
+        if (partitionKey == null) {
+            return serialize();
+        }
+
         lock.readLock().lock();
         try {
-            if (!StringHelper.isBlank(serializedCachedSnapshot)) {
-                JsonNode cache = JsonHelper.mapper.readTree(serializedCachedSnapshot);
-                JsonNode update = JsonHelper.mapper.valueToTree(this);
+            TokenCache partition = new TokenCache();
+            Set<String> homeAccountIds = getPartitionHomeAccountIds(partitionKey);
 
-                mergeJsonObjects(cache, update);
-
-                return JsonHelper.mapper.writeValueAsString(cache);
+            accessTokens.forEach((key, at) -> {
+                if (partitionKey.equals(getPartitionKey(at))) {
+                    partition.accessTokens.put(key, at);
+                }
+            });
+            refreshTokens.forEach((key, rt) -> {
+                if (partitionKey.equals(getPartitionKey(rt))) {
+                    partition.refreshTokens.put(key, rt);
+                }
+            });
+            idTokens.forEach((key, idToken) -> {
+                if (partitionKey.equals(getPartitionKey(idToken))) {
+                    partition.idTokens.put(key, idToken);
+                }
+            });
+            accounts.forEach((key, account) -> {
+                if (isInPartition(account, partitionKey, homeAccountIds)) {
+                    partition.accounts.put(key, account);
+                }
+            });
+            partition.appMetadata.putAll(appMetadata);
+            //Concurrent serializations holding the read lock modify the unknown properties when resetting changes
+            synchronized (changeTracker) {
+                copyUnknownProperties(this, partition);
             }
-            return JsonHelper.mapper.writeValueAsString(this);
-        } catch (IOException e) {
-            throw new MsalClientException(e);
+
+            return partition.serialize();
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    /**
+     * Copies the unknown properties of the entities held by the target cache from the source cache, replacing the
+     * target's unknown properties for those entities
+     */
+    private static void copyUnknownProperties(TokenCache source, TokenCache target) {
+        for (String section : TokenCacheChangeTracker.SECTIONS) {
+            JsonNode sourceSection = source.unknownProperties == null ? null : source.unknownProperties.get(section);
+
+            for (String key : target.getSection(section).keySet()) {
+                JsonNode entityProperties = sourceSection == null ? null : sourceSection.get(key);
+                JsonNode targetSection = target.unknownProperties == null ? null : target.unknownProperties.get(section);
+
+                if (entityProperties != null) {
+                    if (target.unknownProperties == null) {
+                        target.unknownProperties = JsonHelper.mapper.createObjectNode();
+                    }
+                    if (!(targetSection instanceof ObjectNode)) {
+                        targetSection = target.unknownProperties.putObject(section);
+                    }
+                    ((ObjectNode) targetSection).set(key, entityProperties);
+                } else if (targetSection instanceof ObjectNode) {
+                    ((ObjectNode) targetSection).remove(key);
+                }
+            }
+        }
+    }
+
+    private Map<String, ?> getSection(String section) {
+        switch (section) {
+            case TokenCacheChangeTracker.ACCOUNT:
+                return accounts;
+            case TokenCacheChangeTracker.ACCESS_TOKEN:
+                return accessTokens;
+            case TokenCacheChangeTracker.REFRESH_TOKEN:
+                return refreshTokens;
+            case TokenCacheChangeTracker.ID_TOKEN:
+                return idTokens;
+            default:
+                return appMetadata;
+        }
+    }
+
+    /**
+     * @return key of the partition holding tokens acquired by a client credential or managed identity flow
+     */
+    static String getApplicationPartitionKey(String clientId, String tenant) {
+        return clientId + "_" + tenant + "_AppTokenCache";
+    }
+
+    private static String getPartitionKey(Credential credential) {
+        if (!StringHelper.isBlank(credential.userAssertionHash())) {
+            return credential.userAssertionHash();
+        }
+        if (!StringHelper.isBlank(credential.homeAccountId())) {
+            return credential.homeAccountId();
+        }
+        if (credential instanceof AccessTokenCacheEntity) {
+            return getApplicationPartitionKey(credential.clientId(), ((AccessTokenCacheEntity) credential).realm());
+        }
+        return null;
+    }
+
+    /**
+     * Accounts don't always hold the user assertion hash of the tokens they were created with, so accounts are also
+     * matched by the home account ids of the partition's tokens
+     */
+    private Set<String> getPartitionHomeAccountIds(String partitionKey) {
+        Set<String> homeAccountIds = new HashSet<>();
+        homeAccountIds.add(partitionKey);
+
+        for (Map<String, ? extends Credential> credentials : Arrays.asList(accessTokens, refreshTokens, idTokens)) {
+            for (Credential credential : credentials.values()) {
+                if (!StringHelper.isBlank(credential.homeAccountId()) &&
+                        partitionKey.equals(getPartitionKey(credential))) {
+                    homeAccountIds.add(credential.homeAccountId());
+                }
+            }
+        }
+        return homeAccountIds;
+    }
+
+    private static boolean isInPartition(AccountCacheEntity account, String partitionKey, Set<String> homeAccountIds) {
+        if (!StringHelper.isBlank(account.userAssertionHash())) {
+            return partitionKey.equals(account.userAssertionHash());
+        }
+        return homeAccountIds.contains(account.homeAccountId());
+    }
+
+    private static String getSuggestedCacheKey(TokenRequestExecutor tokenRequestExecutor,
+                                               AuthenticationResult authenticationResult) {
+        MsalRequest msalRequest = tokenRequestExecutor.getMsalRequest();
+
+        if (msalRequest instanceof OnBehalfOfRequest) {
+            return ((OnBehalfOfRequest) msalRequest).parameters.userAssertion().getAssertionHash();
+        }
+        if (msalRequest instanceof ClientCredentialRequest || msalRequest instanceof ManagedIdentityRequest) {
+            return getApplicationPartitionKey(msalRequest.application().clientId(), tokenRequestExecutor.tenant);
+        }
+        return authenticationResult.account() != null ? authenticationResult.account().homeAccountId() : null;
+    }
+
     private class CacheAspect implements AutoCloseable {
         ITokenCacheAccessContext context;
 
@@ -178,20 +552,22 @@ public class TokenCache implements ITokenCache {
                 TokenCacheAccessContext.builder().
                         clientId(tokenRequestExecutor.getMsalRequest().application().clientId()).
                         tokenCache(this).
-                        hasCacheChanged(true).build())) {
+                        hasCacheChanged(true).
+                        suggestedCacheKey(getSuggestedCacheKey(tokenRequestExecutor, authenticationResult)).build())) {
             try {
                 lock.writeLock().lock();
 
                 if (!StringHelper.isBlank(authenticationResult.accessToken())) {
                     AccessTokenCacheEntity atEntity = createAccessTokenCacheEntity
                             (tokenRequestExecutor, authenticationResult, environment);
-                    accessTokens.put(atEntity.getKey(), atEntity);
+                    putAccessToken(atEntity);
                 }
                 if (!StringHelper.isBlank(authenticationResult.familyId())) {
                     AppMetadataCacheEntity appMetadataCacheEntity =
                             createAppMetadataCacheEntity(tokenRequestExecutor, authenticationResult, environment);
 
-                    appMetadata.put(appMetadataCacheEntity.getKey(), appMetadataCacheEntity);
+                    putEntity(appMetadata, TokenCacheChangeTracker.APP_METADATA,
+                            appMetadataCacheEntity.getKey(), appMetadataCacheEntity);
                 }
                 if (!StringHelper.isBlank(authenticationResult.refreshToken())) {
                     RefreshTokenCacheEntity rtEntity = createRefreshTokenCacheEntity
@@ -199,23 +575,215 @@ public class TokenCache implements ITokenCache {
 
                     rtEntity.family_id(authenticationResult.familyId());
 
-                    refreshTokens.put(rtEntity.getKey(), rtEntity);
+                    putEntity(refreshTokens, TokenCacheChangeTracker.REFRESH_TOKEN, rtEntity.getKey(), rtEntity);
                 }
                 if (!StringHelper.isBlank(authenticationResult.idToken())) {
                     IdTokenCacheEntity idTokenEntity = createIdTokenCacheEntity
                             (tokenRequestExecutor, authenticationResult, environment);
-                    idTokens.put(idTokenEntity.getKey(), idTokenEntity);
+                    putEntity(idTokens, TokenCacheChangeTracker.ID_TOKEN, idTokenEntity.getKey(), idTokenEntity);
 
                     AccountCacheEntity accountCacheEntity = authenticationResult.accountCacheEntity();
                     if(accountCacheEntity!=null) {
                         accountCacheEntity.environment(environment);
-                        accounts.put(accountCacheEntity.getKey(), accountCacheEntity);
+                        putEntity(accounts, TokenCacheChangeTracker.ACCOUNT,
+                                accountCacheEntity.getKey(), accountCacheEntity);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    void putAccessToken(AccessTokenCacheEntity atEntity) {
+        indexAccessToken(atEntity.getKey(), atEntity);
+
+        evictAccessTokensOverSizeLimit();
+    }
+
+    private void indexAccessToken(String key, AccessTokenCacheEntity atEntity) {
+        AccessTokenCacheEntity replacedEntity = accessTokens.put(key, atEntity);
+        if (replacedEntity != null) {
+            accessTokenIndex.remove(key, replacedEntity);
+        }
+        accessTokenIndex.add(key, atEntity);
+        changeTracker.updated(TokenCacheChangeTracker.ACCESS_TOKEN, key);
+        writeCount++;
+    }
+
+    private void unindexAccessToken(String key, AccessTokenCacheEntity atEntity) {
+        accessTokenIndex.remove(key, atEntity);
+        changeTracker.removed(TokenCacheChangeTracker.ACCESS_TOKEN, key);
+    }
+
+    private void removeAccessTokens(Predicate<AccessTokenCacheEntity> predicate) {
+        Iterator<Map.Entry<String, AccessTokenCacheEntity>> iterator = accessTokens.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, AccessTokenCacheEntity> entry = iterator.next();
+            if (predicate.test(entry.getValue())) {
+                iterator.remove();
+                unindexAccessToken(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * If the cache holds more access tokens than its limit, evicts expired access tokens and then the least
+     * recently used ones until the cache is a batch below its limit
+     */
+    private void evictAccessTokensOverSizeLimit() {
+        if (accessTokenSizeLimit <= 0 || accessTokens.size() <= accessTokenSizeLimit) {
+            return;
+        }
+
+        int targetSize = accessTokenSizeLimit - accessTokenSizeLimit / ACCESS_TOKEN_EVICTION_BATCH_DIVISOR;
+        long currTimeStampSec = System.currentTimeMillis() / 1000;
+
+        List<Map.Entry<String, AccessTokenCacheEntity>> unexpiredAccessTokens = new ArrayList<>();
+
+        Iterator<Map.Entry<String, AccessTokenCacheEntity>> iterator = accessTokens.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, AccessTokenCacheEntity> entry = iterator.next();
+            if (isExpired(entry.getValue(), currTimeStampSec)) {
+                iterator.remove();
+                unindexAccessToken(entry.getKey(), entry.getValue());
+                expiredAccessTokenEvictions.incrementAndGet();
+            } else {
+                unexpiredAccessTokens.add(entry);
+            }
+        }
+
+        int toEvict = accessTokens.size() - targetSize;
+        if (toEvict <= 0) {
+            return;
+        }
+
+        //Stable sort, so entries accessed at the same time are evicted in insertion order
+        unexpiredAccessTokens.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessedAt()));
+
+        for (int i = 0; i < toEvict; i++) {
+            Map.Entry<String, AccessTokenCacheEntity> entry = unexpiredAccessTokens.get(i);
+            accessTokens.remove(entry.getKey());
+            unindexAccessToken(entry.getKey(), entry.getValue());
+            sizeLimitAccessTokenEvictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes expired access tokens, followed by ID tokens and accounts whose home account no longer has any access
+     * or refresh token. Entities are removed in batches, releasing the write lock between batches so that
+     * concurrent requests are not blocked for the whole sweep.
+     *
+     * @return number of removed cache entities
+     */
+    int removeExpiredEntities(String clientId, int batchSize) {
+        TokenCacheAccessContext.TokenCacheAccessContextBuilder contextBuilder = TokenCacheAccessContext.builder().
+                clientId(clientId).
+                tokenCache(this);
+        try (CacheAspect cacheAspect = new CacheAspect(contextBuilder.build())) {
+            long currTimeStampSec = System.currentTimeMillis() / 1000;
+
+            List<String> expiredKeys;
+            lock.readLock().lock();
+            try {
+                expiredKeys = accessTokens.entrySet().stream()
+                        .filter(entry -> isExpired(entry.getValue(), currTimeStampSec))
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            int removedCount = 0;
+            for (int i = 0; i < expiredKeys.size(); i += batchSize) {
+                lock.writeLock().lock();
+                try {
+                    for (String key : expiredKeys.subList(i, Math.min(i + batchSize, expiredKeys.size()))) {
+                        AccessTokenCacheEntity accessToken = accessTokens.get(key);
+                        if (accessToken != null && isExpired(accessToken, currTimeStampSec)) {
+                            accessTokens.remove(key);
+                            unindexAccessToken(key, accessToken);
+                            removedCount++;
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+            removedCount += removeOrphanedEntities(() -> idTokens, TokenCacheChangeTracker.ID_TOKEN,
+                    IdTokenCacheEntity::homeAccountId, batchSize);
+            removedCount += removeOrphanedEntities(() -> accounts, TokenCacheChangeTracker.ACCOUNT,
+                    AccountCacheEntity::homeAccountId, batchSize);
+
+            if (removedCount > 0) {
+                sweptEntities.addAndGet(removedCount);
+                cacheAspect.context = contextBuilder.hasCacheChanged(true).build();
+            }
+            return removedCount;
+        }
+    }
+
+    /**
+     * Removes entities whose home account no longer has any access or refresh token, in batches. The home accounts
+     * with tokens are computed once, and again before a batch only if entities were written to the cache since,
+     * so that each batch only checks its own entities rather than all tokens.
+     */
+    private <T> int removeOrphanedEntities(Supplier<Map<String, T>> entities, String section,
+                                           Function<T, String> homeAccountId, int batchSize) {
+        Set<String> homeAccountIdsWithTokens;
+        long writeCountOfHomeAccountIds;
+        List<String> orphanedKeys;
+        lock.readLock().lock();
+        try {
+            Set<String> initialHomeAccountIdsWithTokens = homeAccountIdsWithTokens();
+            orphanedKeys = entities.get().entrySet().stream()
+                    .filter(entry -> isOrphaned(homeAccountId.apply(entry.getValue()), initialHomeAccountIdsWithTokens))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            homeAccountIdsWithTokens = initialHomeAccountIdsWithTokens;
+            writeCountOfHomeAccountIds = writeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int removedCount = 0;
+        for (int i = 0; i < orphanedKeys.size(); i += batchSize) {
+            lock.writeLock().lock();
+            try {
+                if (writeCount != writeCountOfHomeAccountIds) {
+                    homeAccountIdsWithTokens = homeAccountIdsWithTokens();
+                    writeCountOfHomeAccountIds = writeCount;
+                }
+                Map<String, T> currentEntities = entities.get();
+                for (String key : orphanedKeys.subList(i, Math.min(i + batchSize, orphanedKeys.size()))) {
+                    T entity = currentEntities.get(key);
+                    if (entity != null && isOrphaned(homeAccountId.apply(entity), homeAccountIdsWithTokens)) {
+                        currentEntities.remove(key);
+                        changeTracker.removed(section, key);
+                        removedCount++;
                     }
                 }
             } finally {
                 lock.writeLock().unlock();
             }
         }
+        return removedCount;
+    }
+
+    private Set<String> homeAccountIdsWithTokens() {
+        Set<String> homeAccountIdsWithTokens = new HashSet<>();
+        accessTokens.values().forEach(accessToken -> homeAccountIdsWithTokens.add(accessToken.homeAccountId()));
+        refreshTokens.values().forEach(refreshToken -> homeAccountIdsWithTokens.add(refreshToken.homeAccountId()));
+        return homeAccountIdsWithTokens;
+    }
+
+    private static boolean isOrphaned(String homeAccountId, Set<String> homeAccountIdsWithTokens) {
+        return !StringHelper.isBlank(homeAccountId) && !homeAccountIdsWithTokens.contains(homeAccountId);
+    }
+
+    private static boolean isExpired(AccessTokenCacheEntity accessToken, long currTimeStampSec) {
+        return accessToken.expiresOn() <= currTimeStampSec;
     }
 
     private static RefreshTokenCacheEntity createRefreshTokenCacheEntity(TokenRequestExecutor tokenRequestExecutor,
@@ -265,13 +833,13 @@ public class TokenCache implements ITokenCache {
         }
 
         long currTimestampSec = System.currentTimeMillis() / 1000;
-        at.cachedAt(Long.toString(currTimestampSec));
-        at.expiresOn(Long.toString(authenticationResult.expiresOn()));
+        at.cachedAt(currTimestampSec);
+        at.expiresOn(authenticationResult.expiresOn());
         if (authenticationResult.refreshOn() > 0) {
-            at.refreshOn(Long.toString(authenticationResult.refreshOn()));
+            at.refreshOn(authenticationResult.refreshOn());
         }
         if (authenticationResult.extExpiresOn() > 0) {
-            at.extExpiresOn(Long.toString(authenticationResult.extExpiresOn()));
+            at.extExpiresOn(authenticationResult.extExpiresOn());
         }
 
         return at;
@@ -411,6 +979,7 @@ public class TokenCache implements ITokenCache {
                         clientId(clientId).
                         tokenCache(this).
                         hasCacheChanged(true).
+                        suggestedCacheKey(account.homeAccountId()).
                         build())) {
             try {
                 lock.writeLock().lock();
@@ -424,30 +993,25 @@ public class TokenCache implements ITokenCache {
 
     private void removeAccount(IAccount account) {
 
-        Predicate<Map.Entry<String, ? extends Credential>> credentialToRemovePredicate =
-                e -> !StringHelper.isBlank(e.getValue().homeAccountId()) &&
-                        !StringHelper.isBlank(e.getValue().environment()) &&
-                        e.getValue().homeAccountId().equals(account.homeAccountId());
+        Predicate<Credential> credentialToRemovePredicate =
+                c -> !StringHelper.isBlank(c.homeAccountId()) &&
+                        !StringHelper.isBlank(c.environment()) &&
+                        c.homeAccountId().equals(account.homeAccountId());
 
-        accessTokens.entrySet().removeIf(credentialToRemovePredicate);
+        removeAccessTokens(credentialToRemovePredicate::test);
 
-        refreshTokens.entrySet().removeIf(credentialToRemovePredicate);
+        removeEntities(refreshTokens, TokenCacheChangeTracker.REFRESH_TOKEN, credentialToRemovePredicate::test);
 
-        idTokens.entrySet().removeIf(credentialToRemovePredicate);
+        removeEntities(idTokens, TokenCacheChangeTracker.ID_TOKEN, credentialToRemovePredicate::test);
 
-        accounts.entrySet().removeIf(
-                e -> !StringHelper.isBlank(e.getValue().homeAccountId()) &&
-                        !StringHelper.isBlank(e.getValue().environment()) &&
-                        e.getValue().homeAccountId().equals(account.homeAccountId()));
+        removeEntities(accounts, TokenCacheChangeTracker.ACCOUNT,
+                acc -> !StringHelper.isBlank(acc.homeAccountId()) &&
+                        !StringHelper.isBlank(acc.environment()) &&
+                        acc.homeAccountId().equals(account.homeAccountId()));
     }
 
     private boolean isMatchingScopes(AccessTokenCacheEntity accessTokenCacheEntity, Set<String> scopes) {
-
-        Set<String> accessTokenCacheEntityScopes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-        accessTokenCacheEntityScopes.addAll
-                (Arrays.asList(accessTokenCacheEntity.target().split(Constants.SCOPES_SEPARATOR)));
-
-        return accessTokenCacheEntityScopes.containsAll(scopes);
+        return accessTokenCacheEntity.scopeSet().containsAll(scopes);
     }
 
     private boolean userAssertionHashMatches(Credential credential, String userAssertionHash) {
@@ -475,14 +1039,16 @@ public class TokenCache implements ITokenCache {
             String clientId,
             Set<String> environmentAliases) {
 
-        return accessTokens.values().stream().filter(
-                accessToken ->
-                        accessToken.homeAccountId.equals(account.homeAccountId()) &&
+        return accessTokenIndex.keysForHomeAccount(clientId, authority.tenant(), account.homeAccountId()).stream()
+                .map(accessTokens::get)
+                .filter(accessToken ->
+                        accessToken != null &&
+                                accessToken.homeAccountId.equals(account.homeAccountId()) &&
                                 environmentAliases.contains(accessToken.environment) &&
                                 accessToken.realm.equals(authority.tenant()) &&
                                 accessToken.clientId.equals(clientId) &&
                                 isMatchingScopes(accessToken, scopes)
-        ).findAny();
+                ).findAny();
     }
 
     private Optional<AccessTokenCacheEntity> getApplicationAccessTokenCacheEntity(
@@ -493,11 +1059,18 @@ public class TokenCache implements ITokenCache {
             String userAssertionHash) {
         long currTimeStampSec = new Date().getTime() / 1000;
 
-        return accessTokens.values().stream().filter(
-                accessToken ->
-                        userAssertionHashMatches(accessToken, userAssertionHash) &&
+        //OBO tokens are narrowed down by user assertion, other app tokens only by client id and realm
+        Set<String> candidateKeys = userAssertionHash == null ?
+                accessTokenIndex.keysForApplication(clientId, authority.tenant()) :
+                accessTokenIndex.keysForUserAssertion(clientId, authority.tenant(), userAssertionHash);
+
+        return candidateKeys.stream()
+                .map(accessTokens::get)
+                .filter(accessToken ->
+                        accessToken != null &&
+                                userAssertionHashMatches(accessToken, userAssertionHash) &&
                                 environmentAliases.contains(accessToken.environment) &&
-                                Long.parseLong(accessToken.expiresOn()) > currTimeStampSec + MIN_ACCESS_TOKEN_EXPIRE_IN_SEC &&
+                                accessToken.expiresOn() > currTimeStampSec + MIN_ACCESS_TOKEN_EXPIRE_IN_SEC &&
                                 accessToken.realm.equals(authority.tenant()) &&
                                 accessToken.clientId.equals(clientId) &&
                                 isMatchingScopes(accessToken, scopes))
@@ -595,8 +1168,6 @@ public class TokenCache implements ITokenCache {
             Set<String> scopes,
             String clientId) {
 
-        AuthenticationResult.AuthenticationResultBuilder builder = AuthenticationResult.builder();
-
         Set<String> environmentAliases = AadInstanceDiscoveryProvider.getAliases(account.environment());
 
         try (CacheAspect cacheAspect = new CacheAspect(
@@ -604,10 +1175,13 @@ public class TokenCache implements ITokenCache {
                         clientId(clientId).
                         tokenCache(this).
                         account(account).
+                        suggestedCacheKey(account.homeAccountId()).
                         build())) {
             try {
                 lock.readLock().lock();
 
+                AuthenticationResult.AuthenticationResultBuilder builder = AuthenticationResult.builder();
+
                 Optional<AccountCacheEntity> accountCacheEntity =
                         getAccountCacheEntity(account, environmentAliases);
 
@@ -632,12 +1206,13 @@ public class TokenCache implements ITokenCache {
                 }
 
                 if (atCacheEntity.isPresent()) {
+                    atCacheEntity.get().lastAccessedAt(System.currentTimeMillis());
                     builder.
                             environment(atCacheEntity.get().environment).
                             accessToken(atCacheEntity.get().secret).
-                            expiresOn(Long.parseLong(atCacheEntity.get().expiresOn()));
-                    if (atCacheEntity.get().refreshOn() != null) {
-                        builder.refreshOn(Long.parseLong(atCacheEntity.get().refreshOn()));
+                            expiresOn(atCacheEntity.get().expiresOn());
+                    if (atCacheEntity.get().refreshOn() > 0) {
+                        builder.refreshOn(atCacheEntity.get().refreshOn());
                     }
                 } else {
                     builder.environment(authority.host());
@@ -646,11 +1221,12 @@ public class TokenCache implements ITokenCache {
                 rtCacheEntity.ifPresent(refreshTokenCacheEntity ->
                         builder.refreshToken(refreshTokenCacheEntity.secret));
                 accountCacheEntity.ifPresent(builder::accountCacheEntity);
+
+                return builder.build();
             } finally {
                 lock.readLock().unlock();
             }
         }
-        return builder.build();
     }
 
     AuthenticationResult getCachedAuthenticationResult(
@@ -659,20 +1235,23 @@ public class TokenCache implements ITokenCache {
             String clientId,
             IUserAssertion assertion) {
 
-        AuthenticationResult.AuthenticationResultBuilder builder = AuthenticationResult.builder();
-
         Set<String> environmentAliases = AadInstanceDiscoveryProvider.getAliases(authority.host);
-        builder.environment(authority.host());
+
+        String userAssertionHash = assertion == null ? null : assertion.getAssertionHash();
 
         try (CacheAspect cacheAspect = new CacheAspect(
                 TokenCacheAccessContext.builder().
                         clientId(clientId).
                         tokenCache(this).
+                        suggestedCacheKey(userAssertionHash != null ?
+                                userAssertionHash :
+                                getApplicationPartitionKey(clientId, authority.tenant())).
                         build())) {
             try {
                 lock.readLock().lock();
 
-                String userAssertionHash = assertion == null ? null : assertion.getAssertionHash();
+                AuthenticationResult.AuthenticationResultBuilder builder = AuthenticationResult.builder();
+                builder.environment(authority.host());
 
                 Optional<AccountCacheEntity> accountCacheEntity =
                         getAccountCacheEntity(environmentAliases, userAssertionHash);
@@ -683,11 +1262,12 @@ public class TokenCache implements ITokenCache {
                         getApplicationAccessTokenCacheEntity(authority, scopes, clientId, environmentAliases, userAssertionHash);
 
                 if (atCacheEntity.isPresent()) {
+                    atCacheEntity.get().lastAccessedAt(System.currentTimeMillis());
                     builder.
                             accessToken(atCacheEntity.get().secret).
-                            expiresOn(Long.parseLong(atCacheEntity.get().expiresOn()));
-                    if (atCacheEntity.get().refreshOn() != null) {
-                        builder.refreshOn(Long.parseLong(atCacheEntity.get().refreshOn()));
+                            expiresOn(atCacheEntity.get().expiresOn());
+                    if (atCacheEntity.get().refreshOn() > 0) {
+                        builder.refreshOn(atCacheEntity.get().refreshOn());
                     }
                 }
 
@@ -700,10 +1280,11 @@ public class TokenCache implements ITokenCache {
 
                 rtCacheEntity.ifPresent(refreshTokenCacheEntity ->
                         builder.refreshToken(refreshTokenCacheEntity.secret));
+
+                return builder.build();
             } finally {
                 lock.readLock().unlock();
             }
-            return builder.build();
         }
     }
 }
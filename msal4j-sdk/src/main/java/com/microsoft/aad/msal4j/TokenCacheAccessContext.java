@@ -24,4 +24,6 @@ public class TokenCacheAccessContext implements ITokenCacheAccessContext {
     private IAccount account;
 
     private boolean hasCacheChanged;
+
+    private String suggestedCacheKey;
 }
@@ -0,0 +1,327 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Compact binary serializer and deserializer for {@link TokenCache}, holding the same data as the JSON format.
+ * <p>
+ * Layout, where all integers are unsigned LEB128 varints and all strings are references into the string table:
+ * <pre>
+ * magic "MSAL", format version byte
+ * string table: count, then for each string its UTF-8 length and bytes
+ * AccessToken, RefreshToken, IdToken, Account and AppMetadata sections: entity count, then for each entity
+ *     key reference (0 if the key is the one computed from the entity, otherwise string index + 1),
+ *     property count, then for each property a tag (property index &lt;&lt; 1 | 1 if the value is a number) and
+ *     either the number or a string index
+ * unknown properties: 0 if none, otherwise string index + 1 of their JSON representation
+ * </pre>
+ * Each distinct string, such as an environment, client id, realm or home account id, is stored only once, and
+ * numeric values such as timestamps are stored as varints rather than strings. Cache keys are not stored when they
+ * can be computed from the entity.
+ */
+class TokenCacheBinarySerializer {
+
+    private static final byte[] MAGIC = {'M', 'S', 'A', 'L'};
+
+    static final int FORMAT_VERSION = 1;
+
+    //Longest decimal string which always fits in a long
+    private static final int MAX_NUMERIC_LENGTH = 18;
+
+    private TokenCacheBinarySerializer() {
+    }
+
+    static byte[] write(TokenCache cache) {
+        StringTable stringTable = new StringTable();
+        Output body = new Output(cache.accessTokens.size() * 64);
+
+        writeSection(body, cache.accessTokens, AccessTokenCacheEntity::getKey,
+                CacheEntityField.ACCESS_TOKEN_FIELDS, stringTable);
+        writeSection(body, cache.refreshTokens, RefreshTokenCacheEntity::getKey,
+                CacheEntityField.REFRESH_TOKEN_FIELDS, stringTable);
+        writeSection(body, cache.idTokens, IdTokenCacheEntity::getKey,
+                CacheEntityField.ID_TOKEN_FIELDS, stringTable);
+        writeSection(body, cache.accounts, AccountCacheEntity::getKey,
+                CacheEntityField.ACCOUNT_FIELDS, stringTable);
+        writeSection(body, cache.appMetadata, AppMetadataCacheEntity::getKey,
+                CacheEntityField.APP_METADATA_FIELDS, stringTable);
+
+        body.writeVarint(cache.unknownProperties == null ?
+                0 :
+                stringTable.indexOf(cache.unknownProperties.toString()) + 1);
+
+        List<byte[]> encodedStrings = new ArrayList<>(stringTable.strings.size());
+        int stringsLength = 0;
+        for (String string : stringTable.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            encodedStrings.add(bytes);
+            stringsLength += bytes.length + 5;
+        }
+
+        Output out = new Output(MAGIC.length + 6 + stringsLength + body.size);
+        out.write(MAGIC, MAGIC.length);
+        out.writeByte(FORMAT_VERSION);
+        out.writeVarint(encodedStrings.size());
+        for (byte[] bytes : encodedStrings) {
+            out.writeVarint(bytes.length);
+            out.write(bytes, bytes.length);
+        }
+        out.write(body.buffer, body.size);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * @return a new TokenCache holding the read cache entities and unknown properties
+     */
+    static TokenCache read(byte[] data) {
+        Input in = new Input(data);
+
+        for (byte b : MAGIC) {
+            if (in.readByte() != b) {
+                throw new MsalClientException("Data is not a token cache serialized in the binary format",
+                        AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+            }
+        }
+        int version = in.readByte() & 0xFF;
+        if (version != FORMAT_VERSION) {
+            throw new MsalClientException(String.format("Unsupported binary token cache format version %d", version),
+                    AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+        }
+
+        String[] strings = new String[in.readInt(data.length)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readString(in.readInt(data.length));
+        }
+
+        TokenCache cache = new TokenCache();
+        readSection(in, cache.accessTokens, AccessTokenCacheEntity::new, AccessTokenCacheEntity::getKey,
+                CacheEntityField.ACCESS_TOKEN_FIELDS, strings);
+        readSection(in, cache.refreshTokens, RefreshTokenCacheEntity::new, RefreshTokenCacheEntity::getKey,
+                CacheEntityField.REFRESH_TOKEN_FIELDS, strings);
+        readSection(in, cache.idTokens, IdTokenCacheEntity::new, IdTokenCacheEntity::getKey,
+                CacheEntityField.ID_TOKEN_FIELDS, strings);
+        readSection(in, cache.accounts, AccountCacheEntity::new, AccountCacheEntity::getKey,
+                CacheEntityField.ACCOUNT_FIELDS, strings);
+        readSection(in, cache.appMetadata, AppMetadataCacheEntity::new, AppMetadataCacheEntity::getKey,
+                CacheEntityField.APP_METADATA_FIELDS, strings);
+
+        int unknownPropertiesRef = in.readInt(strings.length);
+        if (unknownPropertiesRef != 0) {
+            try {
+                cache.unknownProperties = (ObjectNode) JsonHelper.mapper.readTree(strings[unknownPropertiesRef - 1]);
+            } catch (IOException | ClassCastException e) {
+                throw new MsalClientException(e.getMessage(), AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+            }
+        }
+
+        return cache;
+    }
+
+    private static <T> void writeSection(Output out, Map<String, T> entities, Function<T, String> keyFunction,
+                                         List<CacheEntityField<T>> fields, StringTable stringTable) {
+        out.writeVarint(entities.size());
+
+        String[] values = new String[fields.size()];
+        for (Map.Entry<String, T> entry : entities.entrySet()) {
+            T entity = entry.getValue();
+
+            out.writeVarint(entry.getKey().equals(keyFunction.apply(entity)) ?
+                    0 :
+                    stringTable.indexOf(entry.getKey()) + 1);
+
+            int fieldCount = 0;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = fields.get(i).getter.apply(entity);
+                if (values[i] != null) {
+                    fieldCount++;
+                }
+            }
+            out.writeVarint(fieldCount);
+
+            for (int i = 0; i < values.length; i++) {
+                String value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                if (isNumeric(value)) {
+                    out.writeVarint(((long) i << 1) | 1);
+                    out.writeVarint(Long.parseLong(value));
+                } else {
+                    out.writeVarint((long) i << 1);
+                    out.writeVarint(stringTable.indexOf(value));
+                }
+            }
+        }
+    }
+
+    private static <T> void readSection(Input in, Map<String, T> entities, Supplier<T> entityFactory,
+                                        Function<T, String> keyFunction, List<CacheEntityField<T>> fields,
+                                        String[] strings) {
+        int entityCount = in.readInt(Integer.MAX_VALUE);
+
+        for (int i = 0; i < entityCount; i++) {
+            int keyRef = in.readInt(strings.length);
+
+            T entity = entityFactory.get();
+            int fieldCount = in.readInt(fields.size());
+            for (int j = 0; j < fieldCount; j++) {
+                long tag = in.readVarint();
+                long fieldIndex = tag >>> 1;
+                if (fieldIndex >= fields.size()) {
+                    throw new MsalClientException(String.format("Unknown token cache entity property index %d", fieldIndex),
+                            AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+                }
+
+                String value = (tag & 1) == 1 ?
+                        Long.toString(in.readVarint()) :
+                        strings[in.readInt(strings.length - 1)];
+                try {
+                    fields.get((int) fieldIndex).setter.accept(entity, value);
+                } catch (NumberFormatException e) {
+                    throw new MsalClientException(String.format("Invalid value for token cache entity property %s",
+                            fields.get((int) fieldIndex).name), AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+                }
+            }
+
+            entities.put(keyRef == 0 ? keyFunction.apply(entity) : strings[keyRef - 1], entity);
+        }
+    }
+
+    /**
+     * @return true if the value is a non-negative decimal number which is converted back to the same string
+     */
+    private static boolean isNumeric(String value) {
+        int length = value.length();
+        if (length == 0 || length > MAX_NUMERIC_LENGTH || (length > 1 && value.charAt(0) == '0')) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int indexOf(String string) {
+            Integer index = indexes.get(string);
+            if (index == null) {
+                index = strings.size();
+                indexes.put(string, index);
+                strings.add(string);
+            }
+            return index;
+        }
+    }
+
+    //Unsynchronized alternative to ByteArrayOutputStream, as the format is written a few bytes at a time
+    private static class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int initialCapacity) {
+            buffer = new byte[Math.max(initialCapacity, 64)];
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void write(byte[] bytes, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+            }
+        }
+    }
+
+    private static class Input {
+        private final byte[] data;
+        private int position;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        byte readByte() {
+            if (position >= data.length) {
+                throw new MsalClientException("Binary token cache data is truncated",
+                        AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+            }
+            return data[position++];
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new MsalClientException("Malformed varint in binary token cache",
+                    AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+        }
+
+        /**
+         * Reads a varint which must be in the range [0, max]
+         */
+        int readInt(int max) {
+            long value = readVarint();
+            if (value < 0 || value > max) {
+                throw new MsalClientException(String.format("Invalid value %d in binary token cache", value),
+                        AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+            }
+            return (int) value;
+        }
+
+        String readString(int length) {
+            if (length > data.length - position) {
+                throw new MsalClientException("Binary token cache data is truncated",
+                        AuthenticationErrorCode.INVALID_CACHE_FORMAT);
+            }
+            String string = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return string;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the keys of cache entities which were updated or removed in each section of a {@link TokenCache}
+ * since it was last serialized or deserialized, so that serialization only needs to process the changed entities
+ * <p>
+ * Changes are only tracked once the cache was serialized or deserialized, so that the keys of caches which are
+ * never persisted are not kept in memory
+ * <p>
+ * Not thread-safe, access must be guarded by the owning TokenCache's lock
+ */
+class TokenCacheChangeTracker {
+
+    static final String ACCOUNT = "Account";
+    static final String ACCESS_TOKEN = "AccessToken";
+    static final String REFRESH_TOKEN = "RefreshToken";
+    static final String ID_TOKEN = "IdToken";
+    static final String APP_METADATA = "AppMetadata";
+
+    static final List<String> SECTIONS =
+            Collections.unmodifiableList(Arrays.asList(ACCOUNT, ACCESS_TOKEN, REFRESH_TOKEN, ID_TOKEN, APP_METADATA));
+
+    // section name to keys of added or replaced entities
+    private final Map<String, Set<String>> updatedKeys = new HashMap<>();
+
+    // section name to keys of removed entities
+    private final Map<String, Set<String>> removedKeys = new HashMap<>();
+
+    // true once the cache was serialized or deserialized, before that there is no serialized cache to track changes to
+    private boolean enabled;
+
+    void updated(String section, String key) {
+        if (!enabled) {
+            return;
+        }
+        removedKeys.getOrDefault(section, Collections.emptySet()).remove(key);
+        updatedKeys.computeIfAbsent(section, k -> new LinkedHashSet<>()).add(key);
+    }
+
+    void removed(String section, String key) {
+        if (!enabled) {
+            return;
+        }
+        updatedKeys.getOrDefault(section, Collections.emptySet()).remove(key);
+        removedKeys.computeIfAbsent(section, k -> new LinkedHashSet<>()).add(key);
+    }
+
+    Set<String> updatedKeys(String section) {
+        return updatedKeys.getOrDefault(section, Collections.emptySet());
+    }
+
+    Set<String> removedKeys(String section) {
+        return removedKeys.getOrDefault(section, Collections.emptySet());
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears the tracked changes, and tracks further changes if they were not tracked yet
+     */
+    void clear() {
+        updatedKeys.clear();
+        removedKeys.clear();
+        enabled = true;
+    }
+}
@@ -0,0 +1,263 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Streaming JSON serializer and deserializer for {@link TokenCache}, producing the same format as serializing the
+ * cache with {@link JsonHelper#mapper} without building an intermediate object tree of the whole cache.
+ * <p>
+ * Properties which are not known to this library (unknown sections, unknown entity properties, explicit nulls, and
+ * values which can't be held by the entities) are kept in {@link TokenCache#unknownProperties} when reading, and
+ * written back as-is, so that caches shared with other libraries are preserved.
+ */
+class TokenCacheJsonSerializer {
+
+    private TokenCacheJsonSerializer() {
+    }
+
+    static void write(JsonGenerator generator, TokenCache cache) throws IOException {
+        ObjectNode unknownProperties = cache.unknownProperties;
+
+        generator.writeStartObject();
+        writeSection(generator, TokenCacheChangeTracker.ACCESS_TOKEN, cache.accessTokens,
+                CacheEntityField.ACCESS_TOKEN_FIELDS, unknownProperties);
+        writeSection(generator, TokenCacheChangeTracker.REFRESH_TOKEN, cache.refreshTokens,
+                CacheEntityField.REFRESH_TOKEN_FIELDS, unknownProperties);
+        writeSection(generator, TokenCacheChangeTracker.ID_TOKEN, cache.idTokens,
+                CacheEntityField.ID_TOKEN_FIELDS, unknownProperties);
+        writeSection(generator, TokenCacheChangeTracker.ACCOUNT, cache.accounts,
+                CacheEntityField.ACCOUNT_FIELDS, unknownProperties);
+        writeSection(generator, TokenCacheChangeTracker.APP_METADATA, cache.appMetadata,
+                CacheEntityField.APP_METADATA_FIELDS, unknownProperties);
+
+        if (unknownProperties != null) {
+            Iterator<Map.Entry<String, JsonNode>> iterator = unknownProperties.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> entry = iterator.next();
+                if (!TokenCacheChangeTracker.SECTIONS.contains(entry.getKey())) {
+                    generator.writeFieldName(entry.getKey());
+                    generator.writeTree(entry.getValue());
+                }
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the tracked changes as a JSON merge patch, with updated entities written in full and removed
+     * entities written as nulls
+     */
+    static void writeChanges(JsonGenerator generator, TokenCache cache, TokenCacheChangeTracker changes)
+            throws IOException {
+        ObjectNode unknownProperties = cache.unknownProperties;
+
+        generator.writeStartObject();
+        writeSectionChanges(generator, TokenCacheChangeTracker.ACCESS_TOKEN, cache.accessTokens,
+                CacheEntityField.ACCESS_TOKEN_FIELDS, unknownProperties, changes);
+        writeSectionChanges(generator, TokenCacheChangeTracker.REFRESH_TOKEN, cache.refreshTokens,
+                CacheEntityField.REFRESH_TOKEN_FIELDS, unknownProperties, changes);
+        writeSectionChanges(generator, TokenCacheChangeTracker.ID_TOKEN, cache.idTokens,
+                CacheEntityField.ID_TOKEN_FIELDS, unknownProperties, changes);
+        writeSectionChanges(generator, TokenCacheChangeTracker.ACCOUNT, cache.accounts,
+                CacheEntityField.ACCOUNT_FIELDS, unknownProperties, changes);
+        writeSectionChanges(generator, TokenCacheChangeTracker.APP_METADATA, cache.appMetadata,
+                CacheEntityField.APP_METADATA_FIELDS, unknownProperties, changes);
+        generator.writeEndObject();
+    }
+
+    /**
+     * @return a new TokenCache holding the read cache entities and unknown properties
+     */
+    static TokenCache read(JsonParser parser) throws IOException {
+        TokenCache cache = new TokenCache();
+        ObjectNode unknownProperties = JsonHelper.mapper.createObjectNode();
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new MsalClientException("Serialized token cache is not a JSON object", AuthenticationErrorCode.INVALID_JSON);
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String section = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (section) {
+                case TokenCacheChangeTracker.ACCESS_TOKEN:
+                    readSection(parser, section, cache.accessTokens, AccessTokenCacheEntity::new,
+                            CacheEntityField.ACCESS_TOKEN_FIELDS, unknownProperties);
+                    break;
+                case TokenCacheChangeTracker.REFRESH_TOKEN:
+                    readSection(parser, section, cache.refreshTokens, RefreshTokenCacheEntity::new,
+                            CacheEntityField.REFRESH_TOKEN_FIELDS, unknownProperties);
+                    break;
+                case TokenCacheChangeTracker.ID_TOKEN:
+                    readSection(parser, section, cache.idTokens, IdTokenCacheEntity::new,
+                            CacheEntityField.ID_TOKEN_FIELDS, unknownProperties);
+                    break;
+                case TokenCacheChangeTracker.ACCOUNT:
+                    readSection(parser, section, cache.accounts, AccountCacheEntity::new,
+                            CacheEntityField.ACCOUNT_FIELDS, unknownProperties);
+                    break;
+                case TokenCacheChangeTracker.APP_METADATA:
+                    readSection(parser, section, cache.appMetadata, AppMetadataCacheEntity::new,
+                            CacheEntityField.APP_METADATA_FIELDS, unknownProperties);
+                    break;
+                default:
+                    unknownProperties.set(section, parser.readValueAsTree());
+            }
+        }
+
+        cache.unknownProperties = unknownProperties.size() > 0 ? unknownProperties : null;
+        return cache;
+    }
+
+    private static <T> void writeSection(JsonGenerator generator, String section, Map<String, T> entities,
+                                         List<CacheEntityField<T>> fields, ObjectNode unknownProperties)
+            throws IOException {
+        JsonNode unknownSectionProperties = unknownProperties == null ? null : unknownProperties.get(section);
+
+        generator.writeObjectFieldStart(section);
+        for (Map.Entry<String, T> entry : entities.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            writeEntity(generator, entry.getValue(), fields,
+                    unknownSectionProperties == null ? null : unknownSectionProperties.get(entry.getKey()));
+        }
+        generator.writeEndObject();
+    }
+
+    private static <T> void writeSectionChanges(JsonGenerator generator, String section, Map<String, T> entities,
+                                                List<CacheEntityField<T>> fields, ObjectNode unknownProperties,
+                                                TokenCacheChangeTracker changes) throws IOException {
+        Set<String> updatedKeys = changes.updatedKeys(section);
+        Set<String> removedKeys = changes.removedKeys(section);
+        if (updatedKeys.isEmpty() && removedKeys.isEmpty()) {
+            return;
+        }
+
+        JsonNode unknownSectionProperties = unknownProperties == null ? null : unknownProperties.get(section);
+
+        generator.writeObjectFieldStart(section);
+        for (String key : updatedKeys) {
+            T entity = entities.get(key);
+            if (entity == null) {
+                generator.writeNullField(key);
+            } else {
+                generator.writeFieldName(key);
+                writeEntity(generator, entity, fields,
+                        unknownSectionProperties == null ? null : unknownSectionProperties.get(key));
+            }
+        }
+        for (String key : removedKeys) {
+            generator.writeNullField(key);
+        }
+        generator.writeEndObject();
+    }
+
+    private static <T> void writeEntity(JsonGenerator generator, T entity, List<CacheEntityField<T>> fields,
+                                        JsonNode unknownEntityProperties) throws IOException {
+        generator.writeStartObject();
+        for (CacheEntityField<T> field : fields) {
+            String value = field.getter.apply(entity);
+            if (value != null) {
+                generator.writeStringField(field.name, value);
+            } else if (unknownEntityProperties != null && unknownEntityProperties.has(field.name)) {
+                //Known property which was explicitly set to null, or to a value which isn't a string or a valid timestamp
+                generator.writeFieldName(field.name);
+                generator.writeTree(unknownEntityProperties.get(field.name));
+            }
+        }
+
+        if (unknownEntityProperties != null) {
+            Iterator<Map.Entry<String, JsonNode>> iterator = unknownEntityProperties.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> entry = iterator.next();
+                if (getField(fields, entry.getKey()) == null) {
+                    generator.writeFieldName(entry.getKey());
+                    generator.writeTree(entry.getValue());
+                }
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static <T> void readSection(JsonParser parser, String section, Map<String, T> entities,
+                                        Supplier<T> entityFactory, List<CacheEntityField<T>> fields,
+                                        ObjectNode unknownProperties) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new MsalClientException(String.format("Token cache section %s is not a JSON object", section),
+                    AuthenticationErrorCode.INVALID_JSON);
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new MsalClientException(String.format("Token cache entity %s is not a JSON object", key),
+                        AuthenticationErrorCode.INVALID_JSON);
+            }
+
+            T entity = entityFactory.get();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                token = parser.nextToken();
+
+                CacheEntityField<T> field = getField(fields, name);
+                if (field == null || !setField(parser, entity, field, token)) {
+                    getOrCreateObject(getOrCreateObject(unknownProperties, section), key)
+                            .set(name, parser.readValueAsTree());
+                }
+            }
+            entities.put(key, entity);
+        }
+    }
+
+    /**
+     * @return false if the value can't be held by the entity, such as a timestamp which isn't a number
+     */
+    private static <T> boolean setField(JsonParser parser, T entity, CacheEntityField<T> field, JsonToken token)
+            throws IOException {
+        if (!token.isScalarValue() || token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        try {
+            field.setter.accept(entity, parser.getValueAsString());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static <T> CacheEntityField<T> getField(List<CacheEntityField<T>> fields, String name) {
+        for (CacheEntityField<T> field : fields) {
+            if (field.name.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static ObjectNode getOrCreateObject(ObjectNode parent, String name) {
+        JsonNode node = parent.get(name);
+        return node instanceof ObjectNode ? (ObjectNode) node : parent.putObject(name);
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task which periodically removes expired entities from an application's token cache.
+ * <p>
+ * Only holds a weak reference to the token cache, and stops running once the cache (and so its application)
+ * has been garbage collected
+ */
+class TokenCacheSweeper implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenCacheSweeper.class);
+
+    //Maximum number of entities removed per write lock acquisition
+    static final int SWEEP_BATCH_SIZE = 100;
+
+    private final WeakReference<TokenCache> tokenCacheReference;
+    private final String clientId;
+    private volatile ScheduledFuture<?> scheduledFuture;
+
+    private TokenCacheSweeper(TokenCache tokenCache, String clientId) {
+        this.tokenCacheReference = new WeakReference<>(tokenCache);
+        this.clientId = clientId;
+    }
+
+    static TokenCacheSweeper schedule(TokenCache tokenCache,
+                                      String clientId,
+                                      ScheduledExecutorService scheduledExecutorService,
+                                      long intervalInSeconds) {
+        TokenCacheSweeper sweeper = new TokenCacheSweeper(tokenCache, clientId);
+        sweeper.scheduledFuture = scheduledExecutorService.scheduleWithFixedDelay(
+                sweeper, intervalInSeconds, intervalInSeconds, TimeUnit.SECONDS);
+
+        return sweeper;
+    }
+
+    @Override
+    public void run() {
+        TokenCache tokenCache = tokenCacheReference.get();
+        if (tokenCache == null) {
+            cancel();
+            return;
+        }
+
+        //Exceptions must not escape, otherwise the executor would silently stop scheduling future sweeps
+        try {
+            int removedCount = tokenCache.removeExpiredEntities(clientId, SWEEP_BATCH_SIZE);
+            LOG.debug(String.format("Expired token sweep removed %d entities from the token cache.", removedCount));
+        } catch (Exception ex) {
+            LOG.warn(String.format("Expired token sweep failed: %s", ex.getMessage()));
+        }
+    }
+
+    void cancel() {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+    }
+}
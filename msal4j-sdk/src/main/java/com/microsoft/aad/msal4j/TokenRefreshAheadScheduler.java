@@ -0,0 +1,203 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Background task which renews recently used access tokens of an application before they need to be refreshed,
+ * so that requests for them are served from the token cache instead of waiting for the token endpoint.
+ * <p>
+ * A token is renewed shortly before its refresh_in time, or before it would stop being returned from the cache,
+ * with some jitter so that tokens acquired at the same time are not all renewed at once. Tokens which were not
+ * requested since they were last renewed are no longer tracked.
+ * <p>
+ * Only holds a weak reference to the application, and stops running once it has been garbage collected
+ *
+ * @param <A> type of the application
+ * @param <P> type of the parameters used to request the tracked tokens
+ */
+class TokenRefreshAheadScheduler<A extends AbstractApplicationBase, P extends IAcquireTokenParameters>
+        implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenRefreshAheadScheduler.class);
+
+    //Interval between checks for tokens to renew
+    static final long CHECK_INTERVAL_IN_SEC = 15;
+
+    //How long before a token needs to be refreshed it is renewed, before subtracting jitter
+    static final long REFRESH_AHEAD_IN_SEC = 60;
+
+    static final long MAX_JITTER_IN_SEC = 60;
+
+    //Delay before retrying to renew a token after a failure
+    static final long RETRY_DELAY_IN_SEC = 30;
+
+    private final WeakReference<A> applicationReference;
+    private final BiFunction<A, P, CompletableFuture<IAuthenticationResult>> refreshFunction;
+    private final Map<List<Object>, TrackedToken<P>> trackedTokens = new ConcurrentHashMap<>();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private volatile ScheduledFuture<?> scheduledFuture;
+
+    private TokenRefreshAheadScheduler(A application,
+                                       BiFunction<A, P, CompletableFuture<IAuthenticationResult>> refreshFunction) {
+        this.applicationReference = new WeakReference<>(application);
+        this.refreshFunction = refreshFunction;
+    }
+
+    /**
+     * @param refreshFunction sends a request for a new token with the given parameters, bypassing the token cache.
+     *                        Must not capture the application, which is passed to it instead.
+     */
+    static <A extends AbstractApplicationBase, P extends IAcquireTokenParameters> TokenRefreshAheadScheduler<A, P> schedule(
+            A application,
+            BiFunction<A, P, CompletableFuture<IAuthenticationResult>> refreshFunction,
+            ScheduledExecutorService scheduledExecutorService) {
+        TokenRefreshAheadScheduler<A, P> scheduler = new TokenRefreshAheadScheduler<>(application, refreshFunction);
+        scheduler.scheduledFuture = scheduledExecutorService.scheduleWithFixedDelay(
+                scheduler, CHECK_INTERVAL_IN_SEC, CHECK_INTERVAL_IN_SEC, TimeUnit.SECONDS);
+
+        return scheduler;
+    }
+
+    /**
+     * Records that a token was returned to the application for the given request, so that it is renewed ahead of time
+     */
+    void tokenUsed(List<Object> requestKey, P parameters, IAuthenticationResult result) {
+        if (!(result instanceof AuthenticationResult) || StringHelper.isBlank(result.accessToken())) {
+            return;
+        }
+
+        TrackedToken<P> trackedToken = trackedTokens.computeIfAbsent(requestKey, k -> new TrackedToken<>(parameters));
+        synchronized (trackedToken) {
+            trackedToken.usedSinceRefresh = true;
+            if (!trackedToken.refreshInProgress) {
+                trackedToken.refreshAt = calculateRefreshAt((AuthenticationResult) result);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        A application = applicationReference.get();
+        if (application == null) {
+            cancel();
+            return;
+        }
+
+        //Exceptions must not escape, otherwise the executor would silently stop scheduling future checks
+        try {
+            long currTimeStampSec = System.currentTimeMillis() / 1000;
+
+            Iterator<Map.Entry<List<Object>, TrackedToken<P>>> iterator = trackedTokens.entrySet().iterator();
+            while (iterator.hasNext()) {
+                TrackedToken<P> trackedToken = iterator.next().getValue();
+                synchronized (trackedToken) {
+                    if (trackedToken.refreshInProgress || trackedToken.refreshAt > currTimeStampSec) {
+                        continue;
+                    }
+                    if (!trackedToken.usedSinceRefresh) {
+                        iterator.remove();
+                        continue;
+                    }
+                    trackedToken.refreshInProgress = true;
+                    trackedToken.usedSinceRefresh = false;
+                }
+                refresh(application, trackedToken);
+            }
+        } catch (Exception ex) {
+            LOG.warn(String.format("Refresh-ahead check failed: %s", ex.getMessage()));
+        }
+    }
+
+    long successCount() {
+        return successCount.get();
+    }
+
+    long failureCount() {
+        return failureCount.get();
+    }
+
+    int trackedTokenCount() {
+        return trackedTokens.size();
+    }
+
+    void cancel() {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+    }
+
+    private void refresh(A application, TrackedToken<P> trackedToken) {
+        CompletableFuture<IAuthenticationResult> future;
+        try {
+            future = refreshFunction.apply(application, trackedToken.parameters);
+        } catch (Exception ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+
+        future.whenComplete((result, ex) -> {
+            synchronized (trackedToken) {
+                trackedToken.refreshInProgress = false;
+                if (ex == null && result instanceof AuthenticationResult) {
+                    successCount.incrementAndGet();
+                    trackedToken.refreshAt = calculateRefreshAt((AuthenticationResult) result);
+                } else {
+                    failureCount.incrementAndGet();
+                    //Keep the token tracked so that renewal is retried, as long as it keeps being used
+                    trackedToken.usedSinceRefresh = true;
+                    trackedToken.refreshAt = System.currentTimeMillis() / 1000 + RETRY_DELAY_IN_SEC;
+                    LOG.warn(String.format("Refresh-ahead token request failed: %s",
+                            ex == null ? "no token returned" : ex.getMessage()));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return time in seconds since the epoch at which the token should be renewed
+     */
+    static long calculateRefreshAt(AuthenticationResult result) {
+        long currTimeStampSec = System.currentTimeMillis() / 1000;
+
+        //Tokens are no longer returned from the cache once they are about to expire
+        long refreshDeadline = result.expiresOn() - TokenCache.MIN_ACCESS_TOKEN_EXPIRE_IN_SEC;
+        if (result.refreshOn() != null && result.refreshOn() > 0 && result.refreshOn() < refreshDeadline) {
+            refreshDeadline = result.refreshOn();
+        }
+
+        long jitter = ThreadLocalRandom.current().nextLong(MAX_JITTER_IN_SEC + 1);
+
+        //Short-lived tokens are renewed halfway to their deadline rather than continuously
+        return Math.max(refreshDeadline - REFRESH_AHEAD_IN_SEC - jitter,
+                currTimeStampSec + (refreshDeadline - currTimeStampSec) / 2);
+    }
+
+    private static class TrackedToken<P> {
+        private final P parameters;
+        private long refreshAt;
+        private boolean usedSinceRefresh;
+        private boolean refreshInProgress;
+
+        TrackedToken(P parameters) {
+            this.parameters = parameters;
+        }
+    }
+}
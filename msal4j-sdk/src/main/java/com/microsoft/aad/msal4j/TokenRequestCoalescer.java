@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical token requests made concurrently by an application, so that when many threads need the same
+ * token at once (for example, right after a popular access token expired) only one request is sent to the STS and
+ * its result is shared with all the waiting threads.
+ * <p>
+ * Requests are identical if they have the same client id, authority, tenant, scopes, account or user assertion,
+ * claims, extra query parameters and extra HTTP headers. A request is only shared while it is in flight, so later
+ * requests are not affected by its outcome.
+ * <p>
+ * A shared request is sent without the timeout and cancellation of the request which started it, so that the other
+ * requests waiting for it are not affected by them. Each request's own timeout only limits how long it waits.
+ */
+class TokenRequestCoalescer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenRequestCoalescer.class);
+
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<AuthenticationResult>> inFlightRequests =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong coalescedRequestCount = new AtomicLong();
+
+    static List<Object> requestKey(String clientId, String authority, IAcquireTokenParameters parameters,
+                                   String accountOrAssertionHash) {
+        Set<String> scopes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        scopes.addAll(parameters.scopes() == null ? Collections.emptySet() : parameters.scopes());
+
+        return Arrays.asList(
+                clientId,
+                authority,
+                parameters.tenant(),
+                scopes,
+                accountOrAssertionHash,
+                parameters.claims() == null ? null : parameters.claims().formatAsJSONString(),
+                parameters.extraQueryParameters(),
+                parameters.extraHttpHeaders());
+    }
+
+    /**
+     * Executes the request, unless an identical request is already in flight, in which case waits for and returns
+     * the result of that request instead. Exceptions thrown by the request are rethrown to all the waiting threads.
+     *
+     * @param requestKey     key created by {@link #requestKey}, or null if the request must not be shared
+     * @param requestContext context of the request, whose timeout limits how long it waits for an identical request
+     * @param request        request to execute, given the context it must be sent with
+     */
+    AuthenticationResult execute(List<Object> requestKey, RequestContext requestContext, Request request)
+            throws Exception {
+        if (requestKey == null) {
+            return request.execute(requestContext);
+        }
+
+        CompletableFuture<AuthenticationResult> future = new CompletableFuture<>();
+        CompletableFuture<AuthenticationResult> inFlightRequest = inFlightRequests.putIfAbsent(requestKey, future);
+
+        if (inFlightRequest != null) {
+            coalescedRequestCount.incrementAndGet();
+            LOG.debug("Identical token request already in progress, waiting for its result");
+            return awaitResult(inFlightRequest, requestContext);
+        }
+
+        try {
+            //If this request times out or is cancelled, its caller stops waiting, but the shared request is still
+            // completed for the other requests waiting for it
+            AuthenticationResult result = request.execute(requestContext.detached());
+            future.complete(result);
+            return result;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlightRequests.remove(requestKey, future);
+        }
+    }
+
+    /**
+     * Starts executing the request on the executor, unless an identical request is already in flight. Identical
+     * requests made with {@link #execute} while it is in flight wait for its result.
+     *
+     * @param requestContext context of the request starting it, whose timeout and cancellation don't apply to it
+     * @return future result of the started request, or null if an identical request was already in flight
+     */
+    CompletableFuture<AuthenticationResult> executeAsync(List<Object> requestKey,
+                                                         RequestContext requestContext,
+                                                         Request request,
+                                                         Executor executor) {
+        RequestContext detachedContext = requestContext.detached();
+        CompletableFuture<AuthenticationResult> future = new CompletableFuture<>();
+        if (inFlightRequests.putIfAbsent(requestKey, future) != null) {
+            return null;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(request.execute(detachedContext));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    inFlightRequests.remove(requestKey, future);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlightRequests.remove(requestKey, future);
+            future.completeExceptionally(ex);
+        }
+
+        return future;
+    }
+
+    /**
+     * @return number of requests which waited for an identical in-flight request instead of being sent
+     */
+    long coalescedRequestCount() {
+        return coalescedRequestCount.get();
+    }
+
+    private static AuthenticationResult awaitResult(CompletableFuture<AuthenticationResult> future,
+                                                    RequestContext requestContext) throws Exception {
+        requestContext.checkNotCancelled();
+        try {
+            return future.get(requestContext.remainingTimeInMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw requestContext.timeoutException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Token request which may be shared between identical requests
+     */
+    interface Request {
+        AuthenticationResult execute(RequestContext requestContext) throws Exception;
+    }
+}
@@ -11,13 +11,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.CALLS_REAL_METHODS;
 import static org.mockito.Mockito.mockStatic;
 
+import java.net.SocketException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ExtendWith(MockitoExtension.class)
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -39,6 +52,7 @@ class AadInstanceDiscoveryTest {
     @BeforeEach
     public void setup() {
         AadInstanceDiscoveryProvider.cache.clear();
+        RegionResolver.reset();
     }
 
     @Test
@@ -140,6 +154,296 @@ class AadInstanceDiscoveryTest {
         }
     }
 
+    @Test
+    void aadInstanceDiscoveryTest_metadataStore_reusedByLaterApplications() throws Exception {
+        Path storeFile = Files.createTempDirectory("msal4j").resolve("instance_discovery.json");
+        FileInstanceDiscoveryMetadataStore store = new FileInstanceDiscoveryMetadataStore(storeFile);
+
+        PublicClientApplication app = PublicClientApplication.builder("client_id")
+                .authority("https://login.microsoftonline.com/my_tenant")
+                .instanceDiscoveryMetadataStore(store)
+                .build();
+
+        MsalRequest msalRequest = new AuthorizationCodeRequest(
+                parameters,
+                app,
+                new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_AUTHORIZATION_CODE, parameters));
+
+        URL authority = new URL(app.authority());
+
+        AadInstanceDiscoveryResponse expectedResponse = JsonHelper.convertJsonToObject(
+                instanceDiscoveryValidResponse,
+                AadInstanceDiscoveryResponse.class);
+
+        try (MockedStatic<AadInstanceDiscoveryProvider> mockedInstanceDiscoveryProvider = mockStatic(AadInstanceDiscoveryProvider.class, CALLS_REAL_METHODS)) {
+
+            mockedInstanceDiscoveryProvider.when(() -> AadInstanceDiscoveryProvider.sendInstanceDiscoveryRequest(authority,
+                    msalRequest,
+                    app.serviceBundle())).thenReturn(expectedResponse);
+
+            AadInstanceDiscoveryProvider.getMetadataEntry(authority, false, msalRequest, app.serviceBundle());
+        }
+        assertTrue(Files.exists(storeFile));
+
+        //A later application loads the stored metadata when it is built, so it doesn't need instance discovery
+        AadInstanceDiscoveryProvider.cache.clear();
+        PublicClientApplication.builder("client_id")
+                .authority("https://login.microsoftonline.com/my_tenant")
+                .instanceDiscoveryMetadataStore(store)
+                .build();
+
+        assertValidResponse(AadInstanceDiscoveryProvider.cache.get("login.microsoftonline.com"));
+
+        //Expired metadata is ignored
+        AadInstanceDiscoveryProvider.cache.clear();
+        PublicClientApplication.builder("client_id")
+                .authority("https://login.microsoftonline.com/my_tenant")
+                .instanceDiscoveryMetadataStore(new FileInstanceDiscoveryMetadataStore(storeFile, -1))
+                .build();
+
+        assertTrue(AadInstanceDiscoveryProvider.cache.isEmpty());
+    }
+
+    @Test
+    void aadInstanceDiscoveryTest_metadataStore_storedRegionUsedForAutoDetection() throws Exception {
+        String storedData = String.format("{\"region_detected_at\":%d,\"region\":\"westus\",\"metadata\":{}}",
+                System.currentTimeMillis());
+
+        IInstanceDiscoveryMetadataStore store = new IInstanceDiscoveryMetadataStore() {
+            @Override
+            public String read() {
+                return storedData;
+            }
+
+            @Override
+            public void write(String data) {
+            }
+        };
+
+        ConfidentialClientApplication app = ConfidentialClientApplication.builder("client_id",
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .autoDetectRegion(true)
+                .instanceDiscoveryMetadataStore(store)
+                .build();
+
+        assertEquals("westus", app.azureRegion());
+
+        //A region set by the developer takes priority
+        app = ConfidentialClientApplication.builder("client_id",
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .autoDetectRegion(true)
+                .azureRegion("eastus")
+                .instanceDiscoveryMetadataStore(store)
+                .build();
+
+        assertEquals("eastus", app.azureRegion());
+    }
+
+    @Test
+    void aadInstanceDiscoveryTest_metadataStore_entriesExpireByDiscoveryTime() {
+        String[] storedData = new String[1];
+        IInstanceDiscoveryMetadataStore store = new IInstanceDiscoveryMetadataStore() {
+            @Override
+            public String read() {
+                return storedData[0];
+            }
+
+            @Override
+            public void write(String data) {
+                storedData[0] = data;
+            }
+
+            @Override
+            public long timeToLiveInSeconds() {
+                return 3600;
+            }
+        };
+        long now = System.currentTimeMillis();
+
+        AadInstanceDiscoveryProvider.cache.clear();
+        InstanceDiscoveryMetadataEntry expiredEntry = InstanceDiscoveryMetadataEntry.builder()
+                .preferredNetwork("expired.host")
+                .aliases(Collections.singleton("expired.host"))
+                .build();
+        expiredEntry.discoveredAtInMs = now - 7200 * 1000;
+        //Discovered again after the data was first saved
+        InstanceDiscoveryMetadataEntry rediscoveredEntry = InstanceDiscoveryMetadataEntry.builder()
+                .preferredNetwork("rediscovered.host")
+                .aliases(Collections.singleton("rediscovered.host"))
+                .build();
+        rediscoveredEntry.discoveredAtInMs = now;
+        AadInstanceDiscoveryProvider.cache.put("expired.host", expiredEntry);
+        AadInstanceDiscoveryProvider.cache.put("rediscovered.host", rediscoveredEntry);
+
+        new PersistedInstanceDiscoveryMetadata(store).save(null);
+
+        AadInstanceDiscoveryProvider.cache.clear();
+        new PersistedInstanceDiscoveryMetadata(store).load();
+
+        assertNull(AadInstanceDiscoveryProvider.cache.get("expired.host"));
+        assertEquals(now, AadInstanceDiscoveryProvider.cache.get("rediscovered.host").discoveredAtInMs());
+        AadInstanceDiscoveryProvider.cache.clear();
+    }
+
+    @Test
+    void aadInstanceDiscoveryTest_concurrentRequestsShareOneDiscovery() throws Exception {
+        AtomicInteger discoveryCount = new AtomicInteger();
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+
+        ConfidentialClientApplication app = ConfidentialClientApplication.builder("client_id",
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .authority("https://login.microsoftonline.com/my_tenant")
+                .httpClient(instanceDiscoveryHttpClient(discoveryCount, releaseResponse))
+                .build();
+        URL authority = new URL(app.authority());
+
+        List<CompletableFuture<InstanceDiscoveryMetadataEntry>> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(CompletableFuture.supplyAsync(() -> AadInstanceDiscoveryProvider.getMetadataEntry(
+                    authority,
+                    false,
+                    new AuthorizationCodeRequest(parameters, app,
+                            new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_AUTHORIZATION_CODE, parameters)),
+                    app.serviceBundle()), Executors.newSingleThreadExecutor()));
+        }
+
+        Thread.sleep(200);
+        releaseResponse.countDown();
+
+        for (CompletableFuture<InstanceDiscoveryMetadataEntry> entry : entries) {
+            assertValidResponse(entry.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, discoveryCount.get());
+    }
+
+    @Test
+    void aadInstanceDiscoveryTest_expiredMetadataRefreshedInBackground() throws Exception {
+        AtomicInteger discoveryCount = new AtomicInteger();
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+
+        ConfidentialClientApplication app = ConfidentialClientApplication.builder("client_id",
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .authority("https://login.microsoftonline.com/my_tenant")
+                .httpClient(instanceDiscoveryHttpClient(discoveryCount, releaseResponse))
+                .instanceDiscoveryCacheTtlInSeconds(60)
+                .build();
+        URL authority = new URL(app.authority());
+        MsalRequest msalRequest = new AuthorizationCodeRequest(parameters, app,
+                new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_AUTHORIZATION_CODE, parameters));
+
+        releaseResponse.countDown();
+        InstanceDiscoveryMetadataEntry entry = AadInstanceDiscoveryProvider.getMetadataEntry(
+                authority, false, msalRequest, app.serviceBundle());
+        assertEquals(1, discoveryCount.get());
+
+        //Metadata which hasn't expired is not discovered again
+        assertSame(entry, AadInstanceDiscoveryProvider.getMetadataEntry(authority, false, msalRequest, app.serviceBundle()));
+        assertEquals(1, discoveryCount.get());
+
+        //Expired metadata is still returned, while it is discovered again in the background
+        entry.discoveredAtInMs = System.currentTimeMillis() - 61000;
+        assertSame(entry, AadInstanceDiscoveryProvider.getMetadataEntry(authority, false, msalRequest, app.serviceBundle()));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (AadInstanceDiscoveryProvider.cache.get("login.microsoftonline.com") == entry &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, discoveryCount.get());
+        assertValidResponse(AadInstanceDiscoveryProvider.cache.get("login.microsoftonline.com"));
+        assertTrue(AadInstanceDiscoveryProvider.cache.get("login.microsoftonline.com").discoveredAtInMs() > entry.discoveredAtInMs());
+    }
+
+    @Test
+    void regionResolver_detectsRegionOncePerProcess() throws Exception {
+        AtomicInteger imdsCallCount = new AtomicInteger();
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+
+        ConfidentialClientApplication app = ConfidentialClientApplication.builder("client_id",
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .httpClient(imdsHttpClient(imdsCallCount, releaseResponse, "westus"))
+                .build();
+
+        List<CompletableFuture<String>> regions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            regions.add(RegionResolver.detectRegion(app, app.serviceBundle()));
+        }
+        releaseResponse.countDown();
+
+        for (CompletableFuture<String> region : regions) {
+            assertEquals("westus", region.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("westus", RegionResolver.detectRegion(app, app.serviceBundle()).get(5, TimeUnit.SECONDS));
+        assertEquals(1, imdsCallCount.get());
+    }
+
+    @Test
+    void regionResolver_failedDetectionIsCached() throws Exception {
+        AtomicInteger imdsCallCount = new AtomicInteger();
+
+        ConfidentialClientApplication app = ConfidentialClientApplication.builder("client_id",
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .httpClient(httpRequest -> {
+                    imdsCallCount.incrementAndGet();
+                    throw new SocketException("Network is unreachable");
+                })
+                .build();
+        MsalRequest msalRequest = new AuthorizationCodeRequest(parameters, app,
+                new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_AUTHORIZATION_CODE, parameters));
+
+        assertNull(AadInstanceDiscoveryProvider.discoverRegion(msalRequest, app.serviceBundle()));
+        assertNull(AadInstanceDiscoveryProvider.discoverRegion(msalRequest, app.serviceBundle()));
+        assertEquals(1, imdsCallCount.get());
+    }
+
+    @Test
+    void regionResolver_detectionStartedOnBuild() throws Exception {
+        AtomicInteger imdsCallCount = new AtomicInteger();
+
+        ConfidentialClientApplication app = ConfidentialClientApplication.builder("client_id",
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .httpClient(imdsHttpClient(imdsCallCount, new CountDownLatch(0), "westus"))
+                .autoDetectRegion(true)
+                .detectRegionOnBuild(true)
+                .build();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (imdsCallCount.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, imdsCallCount.get());
+
+        MsalRequest msalRequest = new AuthorizationCodeRequest(parameters, app,
+                new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_AUTHORIZATION_CODE, parameters));
+
+        assertEquals("westus", AadInstanceDiscoveryProvider.discoverRegion(msalRequest, app.serviceBundle()));
+        assertEquals(1, imdsCallCount.get());
+    }
+
+    private IHttpClient imdsHttpClient(AtomicInteger imdsCallCount, CountDownLatch releaseResponse, String region) {
+        return httpRequest -> {
+            imdsCallCount.incrementAndGet();
+            releaseResponse.await();
+
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.statusCode(200);
+            httpResponse.body(region);
+            return httpResponse;
+        };
+    }
+
+    private IHttpClient instanceDiscoveryHttpClient(AtomicInteger discoveryCount, CountDownLatch releaseResponse) {
+        return httpRequest -> {
+            discoveryCount.incrementAndGet();
+            releaseResponse.await();
+
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.statusCode(200);
+            httpResponse.body(instanceDiscoveryValidResponse);
+            return httpResponse;
+        };
+    }
+
     void assertValidResponse(InstanceDiscoveryMetadataEntry entry) {
         assertEquals(entry.preferredNetwork(), "login.microsoftonline.com");
         assertEquals(entry.preferredCache(), "login.windows.net");
@@ -6,6 +6,9 @@ package com.microsoft.aad.msal4j;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -109,4 +112,42 @@ class AccountTest {
         assertEquals(pca.tokenCache.refreshTokens.size(), 0);
         assertEquals(pca.tokenCache.accessTokens.size(), 0);
     }
+
+    @Test
+    void authenticationResult_idTokenOnlyParsedWhenRequested() throws IOException, URISyntaxException {
+        AuthenticationResult invalidIdTokenResult = AuthenticationResult.builder()
+                .accessToken("token")
+                .idToken("not_a_jwt")
+                .build();
+
+        //Using the access token, comparing or hashing the result doesn't parse the ID token
+        assertEquals("token", invalidIdTokenResult.accessToken());
+        invalidIdTokenResult.equals(AuthenticationResult.builder()
+                .accessToken("token")
+                .idToken("not_a_jwt")
+                .build());
+        invalidIdTokenResult.hashCode();
+
+        assertThrows(MsalClientException.class, invalidIdTokenResult::tenantProfile);
+        assertNull(invalidIdTokenResult.idTokenObject());
+
+        //Unlike an ID token which is not a JWT, claims which are not valid JSON are reported
+        AuthenticationResult invalidClaimsResult = AuthenticationResult.builder()
+                .accessToken("token")
+                .idToken(getJWTHeaderBase64EncodedJson() + POINT_DELIMITER +
+                        Base64.getEncoder().encodeToString("not_json".getBytes()) + POINT_DELIMITER +
+                        getEmptyBase64EncodedJson())
+                .build();
+        assertThrows(MsalClientException.class, invalidClaimsResult::idTokenObject);
+
+        AuthenticationResult result = AuthenticationResult.builder()
+                .accessToken("token")
+                .idToken(getTestIdToken("login.microsoftonline.com", "tid"))
+                .accountCacheEntity(new AccountCacheEntity())
+                .build();
+
+        assertEquals("tid", result.idTokenObject().tenantIdentifier);
+        assertEquals("tid", result.tenantProfile().getClaims().get("tid"));
+        assertSame(result.tenantProfile(), result.tenantProfile());
+    }
 }
@@ -18,7 +18,9 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -116,6 +118,85 @@ class AcquireTokenSilentlyTest {
         assertInstanceOf(MsalInteractionRequiredException.class, ex.getCause());
     }
 
+    @Test
+    void confidentialAppAcquireTokenSilently_backgroundTokenRefresh() throws Throwable {
+        AtomicInteger tokenRequestCount = new AtomicInteger();
+        CountDownLatch releaseTokenRequest = new CountDownLatch(1);
+
+        IHttpClient httpClient = httpRequest -> {
+            tokenRequestCount.incrementAndGet();
+            releaseTokenRequest.await();
+
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.statusCode(200);
+            httpResponse.body(TestConfiguration.TOKEN_ENDPOINT_OK_RESPONSE);
+            httpResponse.addHeaders(Collections.singletonMap("Content-Type", Collections.singletonList("application/json")));
+            return httpResponse;
+        };
+
+        ConfidentialClientApplication application = ConfidentialClientApplication
+                .builder("client_id", ClientCredentialFactory.createFromSecret(TestConfiguration.AAD_CLIENT_DUMMYSECRET))
+                .instanceDiscovery(false)
+                .authority("https://some.authority.com/realm")
+                .httpClient(httpClient)
+                .backgroundTokenRefresh(true)
+                .build();
+
+        application.tokenCache.deserialize(cache);
+        application.tokenCache.accessTokens.values().forEach(at -> at.refreshOn(System.currentTimeMillis() / 1000 - 60));
+
+        SilentParameters parameters = SilentParameters.builder(Collections.singleton("scopes"), basicAccount).build();
+
+        //The cached token is returned without waiting for the refresh, which is only started once
+        assertEquals("token", application.acquireTokenSilently(parameters).get().accessToken());
+        assertEquals("token", application.acquireTokenSilently(parameters).get().accessToken());
+
+        releaseTokenRequest.countDown();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (application.tokenCache.accessTokens.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, application.tokenCache.accessTokens.size());
+        assertEquals(1, tokenRequestCount.get());
+    }
+
+    @Test
+    void confidentialAppTryGetCachedToken_completesOnCallingThreadOnlyForValidCachedTokens() throws Throwable {
+        AtomicInteger tokenRequestCount = new AtomicInteger();
+
+        ConfidentialClientApplication application = ConfidentialClientApplication
+                .builder("client_id", ClientCredentialFactory.createFromSecret(TestConfiguration.AAD_CLIENT_DUMMYSECRET))
+                .instanceDiscovery(false)
+                .authority("https://some.authority.com/realm")
+                .httpClient(httpRequest -> {
+                    tokenRequestCount.incrementAndGet();
+                    throw new IllegalStateException("Token endpoint unavailable");
+                })
+                .build();
+
+        application.tokenCache.deserialize(cache);
+
+        SilentParameters parameters = SilentParameters.builder(Collections.singleton("scopes"), basicAccount).build();
+        CompletableFuture<IAuthenticationResult> future = application.tryGetCachedToken(parameters);
+
+        assertTrue(future.isDone());
+        assertEquals("token", future.get().accessToken());
+        assertEquals(TokenSource.CACHE, future.get().metadata().tokenSource());
+
+        assertEquals(0, tokenRequestCount.get());
+
+        //Requests for tokens which aren't cached or need to be refreshed are handled by acquireTokenSilently
+        parameters = SilentParameters.builder(Collections.singleton("other_scope"), basicAccount).build();
+        assertThrows(ExecutionException.class, application.tryGetCachedToken(parameters)::get);
+        assertEquals(1, tokenRequestCount.get());
+
+        application.tokenCache.accessTokens.values().forEach(at -> at.refreshOn(System.currentTimeMillis() / 1000 - 60));
+        parameters = SilentParameters.builder(Collections.singleton("scopes"), basicAccount).build();
+        assertThrows(ExecutionException.class, application.tryGetCachedToken(parameters)::get);
+        assertEquals(2, tokenRequestCount.get());
+    }
+
     String readResource(String resource) {
         try {
             return new String(Files.readAllBytes(Paths.get(getClass().getResource(resource).toURI())));
@@ -5,6 +5,8 @@ package com.microsoft.aad.msal4j;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -189,4 +191,131 @@ class AuthorityTest {
                 {"https://login.microsoftonline.com//tenant"},
                 {"https://login.microsoftonline.com////tenant//path1"}};
     }
+
+    @Test
+    void testAuthorityCache_reusesAuthoritiesPerTenantAndPreferredNetwork() throws Exception {
+        AuthorityCache.clear();
+        String authority = "https://login.microsoftonline.com/common/";
+
+        URL tenantUrl = AuthorityCache.authorityUrl(authority, "tenant1");
+        assertEquals("https://login.microsoftonline.com/tenant1/", tenantUrl.toString());
+        assertSame(tenantUrl, AuthorityCache.authorityUrl(authority, "tenant1"));
+        assertEquals("https://login.microsoftonline.com/common/", AuthorityCache.authorityUrl(authority, null).toString());
+
+        Authority created = AuthorityCache.authority(authority, "tenant1", "login.microsoftonline.com",
+                () -> Authority.createAuthority(tenantUrl));
+        assertSame(created, AuthorityCache.authority(authority, "tenant1", "login.microsoftonline.com",
+                () -> fail("Cached authority should be reused")));
+        assertSame(created.tokenEndpointUrl(), created.tokenEndpointUrl());
+
+        Authority otherTenant = AuthorityCache.authority(authority, "tenant2", "login.microsoftonline.com",
+                () -> Authority.createAuthority(AuthorityCache.authorityUrl(authority, "tenant2")));
+        assertNotSame(created, otherTenant);
+        assertEquals("tenant2", otherTenant.tenant());
+
+        //The least recently used authorities are evicted once the cache is full
+        for (int i = 0; i < AuthorityCache.MAX_SIZE; i++) {
+            String tenant = "tenant" + (i + 3);
+            AuthorityCache.authority(authority, tenant, "login.microsoftonline.com",
+                    () -> Authority.createAuthority(AuthorityCache.authorityUrl(authority, tenant)));
+        }
+        assertEquals(AuthorityCache.MAX_SIZE, AuthorityCache.size());
+        assertNotSame(created, AuthorityCache.authority(authority, "tenant1", "login.microsoftonline.com",
+                () -> Authority.createAuthority(tenantUrl)));
+    }
+
+    @Test
+    void testOidcDiscovery_cachedAcrossApplicationsAsAllowedByCacheControl() throws Exception {
+        AtomicInteger discoveryCount = new AtomicInteger();
+        IHttpClient httpClient = httpRequest -> {
+            discoveryCount.incrementAndGet();
+            String cacheControl = httpRequest.url().getHost().startsWith("nostore") ? "no-store" : "public, max-age=3600";
+            return oidcDiscoveryResponse("https://" + httpRequest.url().getHost() + "/tenant/token", cacheControl);
+        };
+
+        ConfidentialClientApplication app = oidcApplication("https://cached.oidc.example.com/tenant/", httpClient);
+        ConfidentialClientApplication otherApp = oidcApplication("https://cached.oidc.example.com/tenant/", httpClient);
+
+        assertEquals(1, discoveryCount.get());
+        assertEquals("https://cached.oidc.example.com/tenant/token", otherApp.authenticationAuthority.tokenEndpoint());
+        OidcDiscoveryProvider.CachedOidcMetadata cached = OidcDiscoveryProvider.cache.get(
+                app.authenticationAuthority.canonicalAuthorityUrl.toString());
+        assertEquals(3600 * 1000, cached.expiresAtInMs - cached.cachedAtInMs);
+
+        //Cached metadata is saved with the instance discovery metadata, and loaded again by later applications
+        String[] storedData = new String[1];
+        PersistedInstanceDiscoveryMetadata persistedMetadata = new PersistedInstanceDiscoveryMetadata(
+                new IInstanceDiscoveryMetadataStore() {
+                    @Override
+                    public String read() {
+                        return storedData[0];
+                    }
+
+                    @Override
+                    public void write(String data) {
+                        storedData[0] = data;
+                    }
+                });
+        persistedMetadata.save(null);
+        OidcDiscoveryProvider.cache.remove(app.authenticationAuthority.canonicalAuthorityUrl.toString());
+        persistedMetadata.load();
+        oidcApplication("https://cached.oidc.example.com/tenant/", httpClient);
+        assertEquals(1, discoveryCount.get());
+
+        oidcApplication("https://nostore.oidc.example.com/tenant/", httpClient);
+        oidcApplication("https://nostore.oidc.example.com/tenant/", httpClient);
+        assertEquals(3, discoveryCount.get());
+    }
+
+    @Test
+    void testOidcDiscovery_staleMetadataRefreshedInBackground() throws Exception {
+        AtomicInteger discoveryCount = new AtomicInteger();
+        IHttpClient httpClient = httpRequest -> {
+            discoveryCount.incrementAndGet();
+            return oidcDiscoveryResponse("https://stale.oidc.example.com/tenant/token" + discoveryCount.get(), null);
+        };
+
+        ConfidentialClientApplication app = oidcApplication("https://stale.oidc.example.com/tenant/", httpClient);
+        assertEquals("https://stale.oidc.example.com/tenant/token1", app.authenticationAuthority.tokenEndpoint());
+
+        //Most of the metadata's lifetime passed, but it did not expire yet
+        OidcDiscoveryProvider.CachedOidcMetadata cached = OidcDiscoveryProvider.cache.get(
+                app.authenticationAuthority.canonicalAuthorityUrl.toString());
+        cached.cachedAtInMs -= OidcDiscoveryProvider.DEFAULT_TIME_TO_LIVE_IN_SECONDS * 900;
+        cached.expiresAtInMs -= OidcDiscoveryProvider.DEFAULT_TIME_TO_LIVE_IN_SECONDS * 900;
+
+        ConfidentialClientApplication otherApp = oidcApplication("https://stale.oidc.example.com/tenant/", httpClient);
+        assertEquals("https://stale.oidc.example.com/tenant/token1", otherApp.authenticationAuthority.tokenEndpoint());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (OidcDiscoveryProvider.cache.get(app.authenticationAuthority.canonicalAuthorityUrl.toString()) == cached &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, discoveryCount.get());
+
+        //Applications built earlier switch to the refreshed metadata on their next request
+        OidcDiscoveryProvider.useLatestMetadata(app);
+        assertEquals("https://stale.oidc.example.com/tenant/token2", app.authenticationAuthority.tokenEndpoint());
+        assertEquals("https://stale.oidc.example.com/tenant/token2", app.authenticationAuthority.selfSignedJwtAudience());
+        assertEquals("https://stale.oidc.example.com/tenant/token2", app.authenticationAuthority.tokenEndpointUrl().toString());
+    }
+
+    private ConfidentialClientApplication oidcApplication(String authority, IHttpClient httpClient) throws Exception {
+        return ConfidentialClientApplication.builder("client_id", ClientCredentialFactory.createFromSecret("secret"))
+                .oidcAuthority(authority)
+                .httpClient(httpClient)
+                .build();
+    }
+
+    private HttpResponse oidcDiscoveryResponse(String tokenEndpoint, String cacheControl) {
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.statusCode(200);
+        httpResponse.body("{\"authorization_endpoint\":\"https://oidc.example.com/tenant/authorize\"," +
+                "\"token_endpoint\":\"" + tokenEndpoint + "\"}");
+        if (cacheControl != null) {
+            httpResponse.addHeaders(Collections.singletonMap("Cache-Control", Collections.singletonList(cacheControl)));
+        }
+        return httpResponse;
+    }
 }
@@ -21,6 +21,8 @@ import static org.mockito.Mockito.spy;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -71,6 +73,35 @@ class CacheFormatTests {
         JSONAssert.assertEquals(previouslyStoredCache, serializedCache, JSONCompareMode.STRICT);
     }
 
+    @Test
+    void cacheStreamDeserializationSerializationTest() throws IOException, URISyntaxException, JSONException {
+        TokenCache tokenCache = new TokenCache(null);
+
+        String previouslyStoredCache = readResource("/cache_data/serialized_cache.json");
+
+        tokenCache.deserialize(new ByteArrayInputStream(previouslyStoredCache.getBytes(StandardCharsets.UTF_8)));
+
+        ByteArrayOutputStream serializedCache = new ByteArrayOutputStream();
+        tokenCache.serialize(serializedCache);
+
+        JSONAssert.assertEquals(previouslyStoredCache, new String(serializedCache.toByteArray(), StandardCharsets.UTF_8),
+                JSONCompareMode.STRICT);
+    }
+
+    @Test
+    void cacheBinaryConversionTest() throws IOException, URISyntaxException, JSONException {
+        String previouslyStoredCache = readResource("/cache_data/serialized_cache.json");
+
+        byte[] binaryCache = TokenCache.convertJsonToBinary(previouslyStoredCache);
+
+        JSONAssert.assertEquals(previouslyStoredCache, TokenCache.convertBinaryToJson(binaryCache), JSONCompareMode.STRICT);
+
+        TokenCache tokenCache = new TokenCache(null);
+        tokenCache.deserializeBinary(binaryCache);
+
+        JSONAssert.assertEquals(previouslyStoredCache, tokenCache.serialize(), JSONCompareMode.STRICT);
+    }
+
     String readResource(String resource) throws IOException, URISyntaxException {
         return new String(
                 Files.readAllBytes(
@@ -172,6 +203,9 @@ class CacheFormatTests {
         validateIdTokenCacheEntity(folder, tokenCache);
         validateAccountCacheEntity(folder, tokenCache);
         validateAppMetadataCacheEntity(folder, tokenCache);
+
+        JSONAssert.assertEquals(JsonHelper.mapper.writeValueAsString(tokenCache), tokenCache.serialize(),
+                JSONCompareMode.STRICT);
     }
 
     private void validateAccessTokenCacheEntity(String folder, String tokenResponse, TokenCache tokenCache)
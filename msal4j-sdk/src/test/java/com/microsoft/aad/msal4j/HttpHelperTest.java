@@ -0,0 +1,502 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HttpHelperTest {
+
+    private static HttpResponse httpResponse(int statusCode, String body) {
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.statusCode(statusCode);
+        httpResponse.body(body);
+        httpResponse.addHeaders(Collections.singletonMap("Content-Type", Collections.singletonList("application/json")));
+        return httpResponse;
+    }
+
+    @Test
+    void retryPolicy_exponentialBackoffWithJitter() {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxAttempts(5)
+                .initialDelayInMs(100)
+                .maxDelayInMs(300)
+                .build();
+
+        assertEquals(100, retryPolicy.retryDelayInMs(1));
+        assertEquals(200, retryPolicy.retryDelayInMs(2));
+        assertEquals(300, retryPolicy.retryDelayInMs(3));
+
+        retryPolicy = RetryPolicy.builder()
+                .initialDelayInMs(100)
+                .jitterFactor(0.5)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            long delayInMs = retryPolicy.retryDelayInMs(1);
+            assertTrue(delayInMs >= 50 && delayInMs <= 100);
+        }
+    }
+
+    @Test
+    void executeHttpRequestWithRetries_followsRetryPolicy() throws Exception {
+        AtomicInteger sendCount = new AtomicInteger();
+        SocketTimeoutException timeout = new SocketTimeoutException("timeout");
+
+        IHttpClient httpClient = httpRequest -> {
+            if (sendCount.incrementAndGet() < 3) {
+                throw timeout;
+            }
+            return httpResponse(503, "{}");
+        };
+        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET, "https://login.microsoftonline.com");
+
+        //Retryable exceptions and status codes are retried until maxAttempts is reached
+        HttpHelper retryingHttpHelper = new HttpHelper(httpClient, RetryPolicy.builder()
+                .maxAttempts(4)
+                .initialDelayInMs(1)
+                .retryableExceptions(Collections.singleton(IOException.class))
+                .build(), null);
+
+        assertEquals(503, retryingHttpHelper.executeHttpRequestWithRetries(httpRequest, httpClient).statusCode());
+        assertEquals(4, sendCount.get());
+
+        //Exceptions are not retried by default
+        sendCount.set(0);
+        HttpHelper httpHelper = new HttpHelper(httpClient);
+
+        assertSame(timeout, assertThrows(SocketTimeoutException.class,
+                () -> httpHelper.executeHttpRequestWithRetries(httpRequest, httpClient)));
+        assertEquals(1, sendCount.get());
+
+        //No retry is sent after the total duration of the request
+        sendCount.set(2);
+        HttpHelper limitedHttpHelper = new HttpHelper(httpClient, RetryPolicy.builder()
+                .maxAttempts(10)
+                .initialDelayInMs(1000)
+                .maxTotalDurationInMs(500)
+                .build(), null);
+
+        assertEquals(503, limitedHttpHelper.executeHttpRequestWithRetries(httpRequest, httpClient).statusCode());
+        assertEquals(3, sendCount.get());
+    }
+
+    @Test
+    void managedIdentityRetryPolicy_retriesOnlyListedStatusCodes() {
+        HttpHelperManagedIdentity httpHelper = new HttpHelperManagedIdentity(null);
+
+        assertEquals(HttpHelperManagedIdentity.RETRY_NUM + 1, httpHelper.retryPolicy().maxAttempts());
+        assertTrue(httpHelper.isRetryable(httpResponse(404, "{}")));
+        assertFalse(httpHelper.isRetryable(httpResponse(502, "{}")));
+        assertEquals(HttpHelper.RETRY_DELAY_MS, httpHelper.retryPolicy().retryDelayInMs(3));
+
+        //A custom policy keeps the managed identity status codes unless it sets its own
+        HttpHelperManagedIdentity customHttpHelper = new HttpHelperManagedIdentity(null,
+                RetryPolicy.builder().maxAttempts(2).build(), null, null);
+        assertEquals(2, customHttpHelper.retryPolicy().maxAttempts());
+        assertTrue(customHttpHelper.isRetryable(httpResponse(404, "{}")));
+        assertFalse(customHttpHelper.isRetryable(httpResponse(502, "{}")));
+
+        HttpHelperManagedIdentity statusCodesHttpHelper = new HttpHelperManagedIdentity(null,
+                RetryPolicy.builder().retryableStatusCodes(Collections.singleton(502)).build(), null, null);
+        assertFalse(statusCodesHttpHelper.isRetryable(httpResponse(404, "{}")));
+        assertTrue(statusCodesHttpHelper.isRetryable(httpResponse(502, "{}")));
+    }
+
+    @Test
+    void circuitBreaker_opensAfterConsecutiveFailuresAndClosesAfterSuccessfulProbe() throws Exception {
+        AtomicInteger sendCount = new AtomicInteger();
+        AtomicInteger statusCode = new AtomicInteger(500);
+
+        IHttpClient httpClient = httpRequest -> {
+            sendCount.incrementAndGet();
+            return httpResponse(statusCode.get(), "{}");
+        };
+        HttpHelper httpHelper = new HttpHelper(httpClient,
+                RetryPolicy.builder().maxAttempts(1).build(),
+                CircuitBreakerOptions.builder()
+                        .consecutiveFailureThreshold(3)
+                        .openDurationInMs(100)
+                        .build());
+        HttpRequest tokenRequest = new HttpRequest(HttpMethod.POST, "https://login.microsoftonline.com/tenant/oauth2/v2.0/token");
+        HttpRequest otherRequest = new HttpRequest(HttpMethod.GET, "https://login.microsoftonline.com/common/discovery/instance");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(500, httpHelper.executeHttpRequest(tokenRequest).statusCode());
+        }
+        assertEquals(CircuitBreakerState.OPEN,
+                httpHelper.circuitBreakerStates().get("login.microsoftonline.com/tenant/oauth2/v2.0/token"));
+
+        MsalClientException ex = assertThrows(MsalClientException.class, () -> httpHelper.executeHttpRequest(tokenRequest));
+        assertEquals(AuthenticationErrorCode.CIRCUIT_BREAKER_OPEN, ex.errorCode());
+        assertEquals(3, sendCount.get());
+
+        //Other endpoints have their own circuit
+        assertEquals(500, httpHelper.executeHttpRequest(otherRequest).statusCode());
+        assertEquals(4, sendCount.get());
+
+        //Once the circuit was open long enough, a probe is sent and closes it if it succeeds
+        Thread.sleep(150);
+        statusCode.set(200);
+        assertEquals(200, httpHelper.executeHttpRequest(tokenRequest).statusCode());
+        assertEquals(CircuitBreakerState.CLOSED,
+                httpHelper.circuitBreakerStates().get("login.microsoftonline.com/tenant/oauth2/v2.0/token"));
+    }
+
+    @Test
+    void circuitBreaker_opensOnHighFailureRateAndAfterFailedProbe() throws Exception {
+        AtomicInteger sendCount = new AtomicInteger();
+
+        IHttpClient httpClient = httpRequest -> {
+            //Every other request fails
+            if (sendCount.incrementAndGet() % 2 == 1) {
+                throw new SocketTimeoutException("timeout");
+            }
+            return httpResponse(200, "{}");
+        };
+        HttpHelper httpHelper = new HttpHelper(httpClient, null,
+                CircuitBreakerOptions.builder()
+                        .failureRateThreshold(0.5)
+                        .failureRateWindowSize(10)
+                        .openDurationInMs(100)
+                        .build());
+        HttpRequest tokenRequest = new HttpRequest(HttpMethod.POST, "https://login.microsoftonline.com/tenant/oauth2/v2.0/token");
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                httpHelper.executeHttpRequest(tokenRequest);
+            } catch (MsalClientException ex) {
+                assertInstanceOf(SocketTimeoutException.class, ex.getCause());
+            }
+        }
+        assertEquals(10, sendCount.get());
+        assertEquals(CircuitBreakerState.OPEN, httpHelper.circuitBreakerStates().values().iterator().next());
+
+        //The probe fails, so the circuit opens again
+        Thread.sleep(150);
+        assertThrows(MsalClientException.class, () -> httpHelper.executeHttpRequest(tokenRequest));
+        assertEquals(11, sendCount.get());
+        assertEquals(CircuitBreakerState.OPEN, httpHelper.circuitBreakerStates().values().iterator().next());
+    }
+
+    @Test
+    void circuitBreakerOptions_rejectsInvalidValues() {
+        assertThrows(IllegalArgumentException.class, () ->
+                CircuitBreakerOptions.builder().consecutiveFailureThreshold(0).build());
+        assertThrows(IllegalArgumentException.class, () ->
+                CircuitBreakerOptions.builder().failureRateThreshold(0).build());
+        assertThrows(IllegalArgumentException.class, () ->
+                CircuitBreakerOptions.builder().failureRateThreshold(1.5).build());
+        assertThrows(IllegalArgumentException.class, () ->
+                CircuitBreakerOptions.builder().failureRateWindowSize(0).build());
+        assertThrows(IllegalArgumentException.class, () ->
+                CircuitBreakerOptions.builder().openDurationInMs(-1).build());
+    }
+
+    @Test
+    void circuitBreaker_letsAnotherRequestProbeIfProbeDoesNotComplete() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(CircuitBreakerOptions.builder()
+                .consecutiveFailureThreshold(1)
+                .openDurationInMs(100)
+                .build());
+        String endpoint = "login.microsoftonline.com/tenant/oauth2/v2.0/token";
+
+        circuitBreaker.beforeRequest(endpoint);
+        circuitBreaker.onFailure(endpoint);
+        Thread.sleep(150);
+
+        //The first probe never completes, so requests are rejected until it was outstanding for the open duration
+        circuitBreaker.beforeRequest(endpoint);
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.states().get(endpoint));
+        assertThrows(MsalClientException.class, () -> circuitBreaker.beforeRequest(endpoint));
+
+        Thread.sleep(150);
+        circuitBreaker.beforeRequest(endpoint);
+        circuitBreaker.onSuccess(endpoint);
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.states().get(endpoint));
+    }
+
+    @Test
+    void executeHttpRequestWithRetries_stopsWhenRequestTimesOutOrIsCancelled() throws Exception {
+        AtomicInteger sendCount = new AtomicInteger();
+        IHttpClient httpClient = httpRequest -> {
+            sendCount.incrementAndGet();
+            return httpResponse(503, "{}");
+        };
+        HttpHelper httpHelper = new HttpHelper(httpClient, RetryPolicy.builder()
+                .maxAttempts(10)
+                .initialDelayInMs(1000)
+                .build(), null);
+        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET, "https://login.microsoftonline.com");
+
+        PublicClientApplication app = PublicClientApplication.builder("client_id").build();
+        RefreshTokenParameters parameters = RefreshTokenParameters
+                .builder(Collections.singleton("default-scope"), "rt")
+                .timeoutInMs(500L)
+                .build();
+        RequestContext requestContext = new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_REFRESH_TOKEN, parameters);
+
+        RefreshTokenParameters invalidParameters = RefreshTokenParameters
+                .builder(Collections.singleton("default-scope"), "rt")
+                .timeoutInMs(0L)
+                .build();
+        assertThrows(IllegalArgumentException.class,
+                () -> new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_REFRESH_TOKEN, invalidParameters));
+
+        //No retry is sent if it would be sent after the request timed out
+        assertEquals(503, httpHelper.executeHttpRequestWithRetries(httpRequest, httpClient, requestContext).statusCode());
+        assertEquals(1, sendCount.get());
+        assertTrue(httpRequest.deadlineInMs() > System.currentTimeMillis());
+
+        //No HTTP request is sent once the request was cancelled
+        requestContext.cancel();
+        assertThrows(CancellationException.class,
+                () -> httpHelper.executeHttpRequestWithRetries(httpRequest, httpClient, requestContext));
+        assertEquals(1, sendCount.get());
+    }
+
+    @Test
+    void acquireToken_timesOutAndStopsRetries() throws Exception {
+        AtomicInteger sendCount = new AtomicInteger();
+        CountDownLatch requestSent = new CountDownLatch(1);
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        IHttpClient httpClient = httpRequest -> {
+            sendCount.incrementAndGet();
+            requestSent.countDown();
+            releaseResponse.await();
+            return httpResponse(503, "{}");
+        };
+
+        //The timeout of the request is only triggered by the test, once the request was sent
+        AtomicReference<Runnable> timeout = new AtomicReference<>();
+        ScheduledExecutorService scheduledExecutorService = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                timeout.set(command);
+                return super.schedule(() -> {
+                }, 0, unit);
+            }
+        };
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            PublicClientApplication app = PublicClientApplication.builder("client_id")
+                    .instanceDiscovery(false)
+                    .authority("https://some.authority.com/realm")
+                    .httpClient(httpClient)
+                    .executorService(executorService)
+                    .scheduledExecutorService(scheduledExecutorService)
+                    .retryPolicy(RetryPolicy.builder().initialDelayInMs(1).build())
+                    .build();
+
+            CompletableFuture<IAuthenticationResult> future = app.acquireToken(RefreshTokenParameters
+                    .builder(Collections.singleton("default-scope"), "rt")
+                    .timeoutInMs(TimeUnit.MINUTES.toMillis(10))
+                    .build());
+
+            assertTrue(requestSent.await(10, TimeUnit.SECONDS));
+            timeout.get().run();
+
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(MsalClientException.class, ex.getCause());
+            assertEquals(AuthenticationErrorCode.REQUEST_TIMEOUT, ((MsalClientException) ex.getCause()).errorCode());
+
+            //The response received after the timeout is not retried
+            releaseResponse.countDown();
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(1, sendCount.get());
+        } finally {
+            executorService.shutdownNow();
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void bulkheadOptions_rejectsInvalidValues() {
+        assertThrows(IllegalArgumentException.class, () ->
+                BulkheadOptions.builder().maxConcurrentRequests(0).build());
+        assertThrows(IllegalArgumentException.class, () ->
+                BulkheadOptions.builder().maxConcurrentRequests(-1).build());
+        assertThrows(IllegalArgumentException.class, () ->
+                BulkheadOptions.builder().maxQueueSize(-1).build());
+        assertThrows(IllegalArgumentException.class, () ->
+                BulkheadOptions.builder().maxWaitInMs(-1).build());
+    }
+
+    @Test
+    void bulkhead_limitsConcurrentRequestsAndRejectsWhenQueueIsFull() throws Exception {
+        AtomicInteger sendCount = new AtomicInteger();
+        CountDownLatch releaseResponses = new CountDownLatch(1);
+        IHttpClient httpClient = httpRequest -> {
+            sendCount.incrementAndGet();
+            releaseResponses.await();
+            return httpResponse(200, "{}");
+        };
+        HttpHelper httpHelper = new HttpHelper(httpClient, null, null,
+                BulkheadOptions.builder()
+                        .maxConcurrentRequests(1)
+                        .maxQueueSize(1)
+                        .maxWaitInMs(5000)
+                        .build());
+        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET, "https://login.microsoftonline.com");
+
+        CompletableFuture<IHttpResponse> inFlightRequest =
+                CompletableFuture.supplyAsync(() -> httpHelper.executeHttpRequest(httpRequest));
+        waitFor(() -> sendCount.get() == 1);
+        CompletableFuture<IHttpResponse> queuedRequest =
+                CompletableFuture.supplyAsync(() -> httpHelper.executeHttpRequest(httpRequest));
+        waitFor(() -> httpHelper.bulkheadStatistics().queuedRequests() == 1);
+
+        //Requests are rejected without being sent once the queue is full
+        MsalClientException ex = assertThrows(MsalClientException.class, () -> httpHelper.executeHttpRequest(httpRequest));
+        assertEquals(AuthenticationErrorCode.TOO_MANY_CONCURRENT_REQUESTS, ex.errorCode());
+        assertEquals(1, sendCount.get());
+        assertEquals(1, httpHelper.bulkheadStatistics().inFlightRequests());
+        assertEquals(1, httpHelper.bulkheadStatistics().rejectedRequests());
+
+        releaseResponses.countDown();
+        assertEquals(200, inFlightRequest.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(200, queuedRequest.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(2, sendCount.get());
+        assertEquals(0, httpHelper.bulkheadStatistics().inFlightRequests());
+        assertEquals(0, httpHelper.bulkheadStatistics().queuedRequests());
+    }
+
+    @Test
+    void bulkhead_rejectsRequestsWaitingForTooLong() throws Exception {
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        IHttpClient httpClient = httpRequest -> {
+            releaseResponse.await();
+            return httpResponse(200, "{}");
+        };
+        HttpHelper httpHelper = new HttpHelper(httpClient, null, null,
+                BulkheadOptions.builder()
+                        .maxConcurrentRequests(1)
+                        .maxWaitInMs(100)
+                        .build());
+        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET, "https://login.microsoftonline.com");
+
+        CompletableFuture<IHttpResponse> inFlightRequest =
+                CompletableFuture.supplyAsync(() -> httpHelper.executeHttpRequest(httpRequest));
+        waitFor(() -> httpHelper.bulkheadStatistics().inFlightRequests() == 1);
+
+        MsalClientException ex = assertThrows(MsalClientException.class, () -> httpHelper.executeHttpRequest(httpRequest));
+        assertEquals(AuthenticationErrorCode.TOO_MANY_CONCURRENT_REQUESTS, ex.errorCode());
+
+        releaseResponse.countDown();
+        inFlightRequest.get(5, TimeUnit.SECONDS);
+
+        //Requests are sent again once a permit is available
+        assertEquals(200, httpHelper.executeHttpRequest(httpRequest).statusCode());
+    }
+
+    @Test
+    void bulkhead_waitIsLimitedByRequestTimeout() throws Exception {
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        IHttpClient httpClient = httpRequest -> {
+            releaseResponse.await();
+            return httpResponse(200, "{}");
+        };
+        HttpHelper httpHelper = new HttpHelper(httpClient, null, null,
+                BulkheadOptions.builder()
+                        .maxConcurrentRequests(1)
+                        .maxWaitInMs(5000)
+                        .build());
+        HttpRequest httpRequest = new HttpRequest(HttpMethod.GET, "https://login.microsoftonline.com");
+
+        PublicClientApplication app = PublicClientApplication.builder("client_id").build();
+        RefreshTokenParameters parameters = RefreshTokenParameters
+                .builder(Collections.singleton("default-scope"), "rt")
+                .timeoutInMs(100L)
+                .build();
+        RequestContext requestContext = new RequestContext(app, PublicApi.ACQUIRE_TOKEN_BY_REFRESH_TOKEN, parameters);
+
+        CompletableFuture<IHttpResponse> inFlightRequest =
+                CompletableFuture.supplyAsync(() -> httpHelper.executeHttpRequest(httpRequest));
+        waitFor(() -> httpHelper.bulkheadStatistics().inFlightRequests() == 1);
+
+        //A request which times out while waiting reports its timeout, rather than being rejected by the bulkhead
+        MsalClientException ex = assertThrows(MsalClientException.class,
+                () -> httpHelper.executeHttpRequestWithRetries(httpRequest, httpClient, requestContext));
+        assertEquals(AuthenticationErrorCode.REQUEST_TIMEOUT, ex.errorCode());
+        assertEquals(0, httpHelper.bulkheadStatistics().rejectedRequests());
+        assertEquals(0, httpHelper.bulkheadStatistics().queuedRequests());
+
+        releaseResponse.countDown();
+        inFlightRequest.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void bulkhead_requestsToOpenCircuitFailWithoutWaiting() throws Exception {
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        IHttpClient httpClient = httpRequest -> {
+            if (httpRequest.url().getPath().endsWith("token")) {
+                return httpResponse(500, "{}");
+            }
+            releaseResponse.await();
+            return httpResponse(200, "{}");
+        };
+        HttpHelper httpHelper = new HttpHelper(httpClient,
+                RetryPolicy.builder().maxAttempts(1).build(),
+                CircuitBreakerOptions.builder()
+                        .consecutiveFailureThreshold(1)
+                        .openDurationInMs(60000)
+                        .build(),
+                BulkheadOptions.builder()
+                        .maxConcurrentRequests(1)
+                        .maxWaitInMs(5000)
+                        .build());
+        HttpRequest tokenRequest = new HttpRequest(HttpMethod.POST, "https://login.microsoftonline.com/tenant/oauth2/v2.0/token");
+        HttpRequest otherRequest = new HttpRequest(HttpMethod.GET, "https://login.microsoftonline.com/common/discovery/instance");
+
+        assertEquals(500, httpHelper.executeHttpRequest(tokenRequest).statusCode());
+
+        CompletableFuture<IHttpResponse> inFlightRequest =
+                CompletableFuture.supplyAsync(() -> httpHelper.executeHttpRequest(otherRequest));
+        waitFor(() -> httpHelper.bulkheadStatistics().inFlightRequests() == 1);
+
+        long startTimeInMs = System.currentTimeMillis();
+        MsalClientException ex = assertThrows(MsalClientException.class, () -> httpHelper.executeHttpRequest(tokenRequest));
+        assertEquals(AuthenticationErrorCode.CIRCUIT_BREAKER_OPEN, ex.errorCode());
+        assertTrue(System.currentTimeMillis() - startTimeInMs < 5000);
+        assertEquals(0, httpHelper.bulkheadStatistics().rejectedRequests());
+
+        releaseResponse.countDown();
+        inFlightRequest.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
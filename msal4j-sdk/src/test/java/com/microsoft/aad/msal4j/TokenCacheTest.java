@@ -0,0 +1,499 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TokenCacheTest {
+
+    private static final String CLIENT_ID = "client_id";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String SCOPE = "https://graph.microsoft.com/.default";
+
+    static AccessTokenCacheEntity createAccessToken(String homeAccountId, String realm, String userAssertionHash, String secret) {
+        long currTimestampSec = System.currentTimeMillis() / 1000;
+
+        AccessTokenCacheEntity at = new AccessTokenCacheEntity();
+        at.credentialType(CredentialTypeEnum.ACCESS_TOKEN.value());
+        at.homeAccountId(homeAccountId);
+        at.environment(ENVIRONMENT);
+        at.clientId(CLIENT_ID);
+        at.realm(realm);
+        at.target(SCOPE);
+        at.secret(secret);
+        at.userAssertionHash(userAssertionHash);
+        at.cachedAt(currTimestampSec);
+        at.expiresOn(currTimestampSec + 3600);
+
+        return at;
+    }
+
+    static TokenCache createDeserializedCache(TokenCache source) {
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.deserialize(source.serialize());
+        return tokenCache;
+    }
+
+    private static Authority authority(String tenant) throws MalformedURLException {
+        return new AADAuthority(new URL("https://" + ENVIRONMENT + "/" + tenant + "/"));
+    }
+
+    @Test
+    void applicationAccessTokenLookup_multipleTenants() throws MalformedURLException {
+        TokenCache source = new TokenCache();
+        for (int i = 0; i < 1000; i++) {
+            AccessTokenCacheEntity at = createAccessToken(null, "tenant_" + i, null, "token_" + i);
+            source.accessTokens.put(at.getKey(), at);
+        }
+
+        TokenCache tokenCache = createDeserializedCache(source);
+
+        AuthenticationResult result = tokenCache.getCachedAuthenticationResult(
+                authority("tenant_500"), Collections.singleton(SCOPE), CLIENT_ID, null);
+
+        assertEquals("token_500", result.accessToken());
+
+        result = tokenCache.getCachedAuthenticationResult(
+                authority("unknown_tenant"), Collections.singleton(SCOPE), CLIENT_ID, null);
+
+        assertNull(result.accessToken());
+    }
+
+    @Test
+    void onBehalfOfAccessTokenLookup_multipleUserAssertions() throws MalformedURLException {
+        TokenCache source = new TokenCache();
+        for (int i = 0; i < 1000; i++) {
+            String assertionHash = new UserAssertion("assertion_" + i).getAssertionHash();
+            AccessTokenCacheEntity at = createAccessToken("uid_" + i, "tenant", assertionHash, "token_" + i);
+            source.accessTokens.put(at.getKey(), at);
+        }
+
+        TokenCache tokenCache = createDeserializedCache(source);
+
+        AuthenticationResult result = tokenCache.getCachedAuthenticationResult(
+                authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID, new UserAssertion("assertion_42"));
+
+        assertEquals("token_42", result.accessToken());
+    }
+
+    @Test
+    void removeAccount_removesAccessTokensFromLookups() throws MalformedURLException {
+        TokenCache source = new TokenCache();
+        AccessTokenCacheEntity at = createAccessToken("uid.utid", "tenant", null, "token");
+        source.accessTokens.put(at.getKey(), at);
+
+        TokenCache tokenCache = createDeserializedCache(source);
+        IAccount account = new Account("uid.utid", ENVIRONMENT, "username", null);
+
+        AuthenticationResult result = tokenCache.getCachedAuthenticationResult(
+                account, authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID);
+        assertEquals("token", result.accessToken());
+
+        tokenCache.removeAccount(CLIENT_ID, account);
+
+        result = tokenCache.getCachedAuthenticationResult(
+                account, authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID);
+        assertNull(result.accessToken());
+        assertEquals(0, tokenCache.accessTokens.size());
+    }
+
+    @Test
+    void accessTokenScopes_parsedOnceAndShared() throws MalformedURLException {
+        TokenCache source = new TokenCache();
+        AccessTokenCacheEntity at1 = createAccessToken(null, "tenant_1", null, "token_1");
+        AccessTokenCacheEntity at2 = createAccessToken(null, "tenant_2", null, "token_2");
+        source.accessTokens.put(at1.getKey(), at1);
+        source.accessTokens.put(at2.getKey(), at2);
+
+        TokenCache tokenCache = createDeserializedCache(source);
+
+        assertSame(tokenCache.accessTokens.get(at1.getKey()).scopeSet(),
+                tokenCache.accessTokens.get(at2.getKey()).scopeSet());
+
+        AuthenticationResult result = tokenCache.getCachedAuthenticationResult(
+                authority("tenant_2"), Collections.singleton(SCOPE.toUpperCase()), CLIENT_ID, null);
+
+        assertEquals("token_2", result.accessToken());
+    }
+
+    @Test
+    void accessTokenCacheIndex_dropsScopeSetsNoLongerUsed() throws MalformedURLException {
+        AccessTokenCacheEntity at1 = createAccessToken(null, "tenant_1", null, "token_1");
+        AccessTokenCacheEntity at2 = createAccessToken(null, "tenant_2", null, "token_2");
+        AccessTokenCacheIndex index = new AccessTokenCacheIndex();
+
+        index.add(at1.getKey(), at1);
+        index.add(at2.getKey(), at2);
+        assertEquals(1, index.scopeSetCount());
+
+        index.remove(at1.getKey(), at1);
+        assertEquals(1, index.scopeSetCount());
+
+        index.remove(at2.getKey(), at2);
+        assertEquals(0, index.scopeSetCount());
+    }
+
+    @Test
+    void boundedCache_evictsExpiredAccessTokensFirst() {
+        TokenCache source = new TokenCache();
+        for (int i = 0; i < 15; i++) {
+            AccessTokenCacheEntity at = createAccessToken(null, "tenant_" + i, null, "token_" + i);
+            if (i % 3 == 0) {
+                at.expiresOn(System.currentTimeMillis() / 1000 - 60);
+            }
+            source.accessTokens.put(at.getKey(), at);
+        }
+
+        TokenCache tokenCache = new TokenCache(null, 10);
+        tokenCache.deserialize(source.serialize());
+
+        assertEquals(5, tokenCache.expiredAccessTokenEvictions());
+        assertEquals(1, tokenCache.sizeLimitAccessTokenEvictions());
+        assertEquals(9, tokenCache.accessTokens.size());
+        assertTrue(tokenCache.accessTokens.values().stream()
+                .noneMatch(at -> at.expiresOn() < System.currentTimeMillis() / 1000));
+    }
+
+    @Test
+    void boundedCache_evictsLeastRecentlyUsedAccessTokens() throws MalformedURLException {
+        TokenCache source = new TokenCache();
+        for (int i = 0; i < 10; i++) {
+            AccessTokenCacheEntity at = createAccessToken(null, "tenant_" + i, null, "token_" + i);
+            source.accessTokens.put(at.getKey(), at);
+        }
+
+        TokenCache tokenCache = new TokenCache(null, 10);
+        tokenCache.deserialize(source.serialize());
+        tokenCache.accessTokens.values().forEach(at -> at.lastAccessedAt(0));
+
+        tokenCache.getCachedAuthenticationResult(
+                authority("tenant_0"), Collections.singleton(SCOPE), CLIENT_ID, null);
+
+        tokenCache.putAccessToken(createAccessToken(null, "tenant_10", null, "token_10"));
+
+        assertEquals(2, tokenCache.sizeLimitAccessTokenEvictions());
+        assertEquals(9, tokenCache.accessTokens.size());
+        assertTrue(tokenCache.accessTokens.values().stream().anyMatch(at -> at.secret().equals("token_0")));
+        assertTrue(tokenCache.accessTokens.values().stream().anyMatch(at -> at.secret().equals("token_10")));
+        assertFalse(tokenCache.accessTokens.values().stream().anyMatch(at -> at.secret().equals("token_1")));
+
+        AuthenticationResult result = tokenCache.getCachedAuthenticationResult(
+                authority("tenant_1"), Collections.singleton(SCOPE), CLIENT_ID, null);
+        assertNull(result.accessToken());
+    }
+
+    @Test
+    void removeExpiredEntities_removesExpiredAccessTokensAndOrphanedAccounts() {
+        TokenCache source = new TokenCache();
+        for (String homeAccountId : Arrays.asList("expired_uid", "active_uid")) {
+            AccessTokenCacheEntity at = createAccessToken(homeAccountId, "tenant", null, "token");
+            if (homeAccountId.equals("expired_uid")) {
+                at.expiresOn(System.currentTimeMillis() / 1000 - 60);
+            }
+            source.accessTokens.put(at.getKey(), at);
+
+            IdTokenCacheEntity idToken = new IdTokenCacheEntity();
+            idToken.credentialType(CredentialTypeEnum.ID_TOKEN.value());
+            idToken.homeAccountId(homeAccountId);
+            idToken.environment(ENVIRONMENT);
+            idToken.clientId(CLIENT_ID);
+            idToken.realm("tenant");
+            idToken.secret("id_token");
+            source.idTokens.put(idToken.getKey(), idToken);
+
+            AccountCacheEntity account = new AccountCacheEntity();
+            account.homeAccountId(homeAccountId);
+            account.environment(ENVIRONMENT);
+            account.realm("tenant");
+            source.accounts.put(account.getKey(), account);
+        }
+
+        TokenCache tokenCache = createDeserializedCache(source);
+        List<Boolean> cacheChanges = new ArrayList<>();
+        tokenCache.tokenCacheAccessAspect = new ITokenCacheAccessAspect() {
+            @Override
+            public void beforeCacheAccess(ITokenCacheAccessContext context) {
+            }
+
+            @Override
+            public void afterCacheAccess(ITokenCacheAccessContext context) {
+                cacheChanges.add(context.hasCacheChanged());
+            }
+        };
+
+        assertEquals(3, tokenCache.removeExpiredEntities(CLIENT_ID, 1));
+
+        assertEquals(1, tokenCache.accessTokens.size());
+        assertEquals(1, tokenCache.idTokens.size());
+        assertEquals(1, tokenCache.accounts.size());
+        assertEquals("active_uid", tokenCache.accounts.values().iterator().next().homeAccountId());
+
+        //A sweep which removes nothing does not report a cache change
+        assertEquals(0, tokenCache.removeExpiredEntities(CLIENT_ID, 1));
+        assertEquals(Arrays.asList(true, false), cacheChanges);
+        assertEquals(3, tokenCache.sweptEntities());
+    }
+
+    @Test
+    void serializePartition_containsOnlyPartitionEntities() {
+        TokenCache tokenCache = new TokenCache();
+        String assertionHash = new UserAssertion("assertion").getAssertionHash();
+        for (AccessTokenCacheEntity at : Arrays.asList(
+                createAccessToken(null, "tenant", null, "app_token"),
+                createAccessToken("uid.utid", "tenant", null, "user_token"),
+                createAccessToken("obo_uid.utid", "tenant", assertionHash, "obo_token"))) {
+            tokenCache.putAccessToken(at);
+        }
+
+        AccountCacheEntity account = new AccountCacheEntity();
+        account.homeAccountId("obo_uid.utid");
+        account.environment(ENVIRONMENT);
+        account.realm("tenant");
+        tokenCache.accounts.put(account.getKey(), account);
+
+        TokenCache appPartition = new TokenCache();
+        appPartition.deserialize(tokenCache.serialize(TokenCache.getApplicationPartitionKey(CLIENT_ID, "tenant")));
+        assertEquals(1, appPartition.accessTokens.size());
+        assertEquals("app_token", appPartition.accessTokens.values().iterator().next().secret());
+        assertEquals(0, appPartition.accounts.size());
+
+        TokenCache oboPartition = new TokenCache();
+        oboPartition.deserialize(tokenCache.serialize(assertionHash));
+        assertEquals(1, oboPartition.accessTokens.size());
+        assertEquals("obo_token", oboPartition.accessTokens.values().iterator().next().secret());
+        assertEquals(1, oboPartition.accounts.size());
+    }
+
+    @Test
+    void deserializePartition_replacesOnlyPartitionEntities() throws MalformedURLException {
+        TokenCache source = new TokenCache();
+        source.putAccessToken(createAccessToken("uid_1", "tenant", null, "new_token_1"));
+
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.putAccessToken(createAccessToken("uid_1", "tenant", null, "old_token_1"));
+        tokenCache.putAccessToken(createAccessToken("uid_1", "other_tenant", null, "stale_token_1"));
+        tokenCache.putAccessToken(createAccessToken("uid_2", "tenant", null, "token_2"));
+
+        tokenCache.deserialize("uid_1", source.serialize("uid_1"));
+
+        assertEquals(2, tokenCache.accessTokens.size());
+
+        AuthenticationResult result = tokenCache.getCachedAuthenticationResult(
+                new Account("uid_1", ENVIRONMENT, "username", null),
+                authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID);
+        assertEquals("new_token_1", result.accessToken());
+
+        result = tokenCache.getCachedAuthenticationResult(
+                new Account("uid_1", ENVIRONMENT, "username", null),
+                authority("other_tenant"), Collections.singleton(SCOPE), CLIENT_ID);
+        assertNull(result.accessToken());
+
+        result = tokenCache.getCachedAuthenticationResult(
+                new Account("uid_2", ENVIRONMENT, "username", null),
+                authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID);
+        assertEquals("token_2", result.accessToken());
+    }
+
+    @Test
+    void cacheAccessContext_suggestsPartitionKey() throws MalformedURLException {
+        List<String> suggestedKeys = new ArrayList<>();
+        TokenCache tokenCache = new TokenCache(new ITokenCacheAccessAspect() {
+            @Override
+            public void beforeCacheAccess(ITokenCacheAccessContext context) {
+                suggestedKeys.add(context.suggestedCacheKey());
+            }
+
+            @Override
+            public void afterCacheAccess(ITokenCacheAccessContext context) {
+            }
+        });
+
+        UserAssertion assertion = new UserAssertion("assertion");
+        tokenCache.getCachedAuthenticationResult(authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID, null);
+        tokenCache.getCachedAuthenticationResult(authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID, assertion);
+        tokenCache.getCachedAuthenticationResult(new Account("uid.utid", ENVIRONMENT, "username", null),
+                authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID);
+
+        assertEquals(Arrays.asList(
+                TokenCache.getApplicationPartitionKey(CLIENT_ID, "tenant"),
+                assertion.getAssertionHash(),
+                "uid.utid"), suggestedKeys);
+    }
+
+    @Test
+    void serializeChanges_containsOnlyUpdatedAndRemovedEntities() throws IOException {
+        TokenCache source = new TokenCache();
+        AccessTokenCacheEntity removedAt = createAccessToken("uid_1", "tenant", null, "token_1");
+        AccessTokenCacheEntity unchangedAt = createAccessToken("uid_2", "tenant", null, "token_2");
+        source.accessTokens.put(removedAt.getKey(), removedAt);
+        source.accessTokens.put(unchangedAt.getKey(), unchangedAt);
+
+        ObjectNode previousCache = (ObjectNode) JsonHelper.mapper.readTree(source.serialize());
+        ((ObjectNode) previousCache.get("AccessToken").get(unchangedAt.getKey())).put("unknown_field", "value");
+        previousCache.putObject("UnknownSection").put("key", "value");
+
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.deserialize(previousCache.toString());
+
+        AccessTokenCacheEntity addedAt = createAccessToken("uid_3", "tenant", null, "token_3");
+        tokenCache.putAccessToken(addedAt);
+        tokenCache.removeAccount(CLIENT_ID, new Account("uid_1", ENVIRONMENT, "username", null));
+
+        JsonNode changes = JsonHelper.mapper.readTree(tokenCache.serializeChanges());
+
+        assertEquals(1, changes.size());
+        assertEquals(2, changes.get("AccessToken").size());
+        assertTrue(changes.get("AccessToken").get(removedAt.getKey()).isNull());
+        assertEquals("token_3", changes.get("AccessToken").get(addedAt.getKey()).get("secret").asText());
+
+        JsonNode serializedCache = JsonHelper.mapper.readTree(tokenCache.serialize());
+
+        assertEquals(2, serializedCache.get("AccessToken").size());
+        assertEquals("value", serializedCache.get("AccessToken").get(unchangedAt.getKey()).get("unknown_field").asText());
+        assertEquals("value", serializedCache.get("UnknownSection").get("key").asText());
+        assertEquals("{}", tokenCache.serializeChanges());
+    }
+
+    @Test
+    void serializeChanges_containsWholeCacheIfItWasNotSerializedBefore() throws IOException {
+        AccessTokenCacheEntity at = createAccessToken("uid_1", "tenant", null, "token_1");
+        TokenCache fullyChangedCache = new TokenCache();
+        fullyChangedCache.putAccessToken(at);
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.putAccessToken(at);
+
+        assertEquals(JsonHelper.mapper.readTree(tokenCache.serialize()),
+                JsonHelper.mapper.readTree(fullyChangedCache.serializeChanges()));
+
+        //Changes are tracked once the cache was serialized
+        tokenCache.removeAccount(CLIENT_ID, new Account("uid_1", ENVIRONMENT, "username", null));
+        JsonNode changes = JsonHelper.mapper.readTree(tokenCache.serializeChanges());
+
+        assertEquals(1, changes.get("AccessToken").size());
+        assertTrue(changes.get("AccessToken").get(at.getKey()).isNull());
+    }
+
+    @Test
+    void deserialize_invalidTimestampIsPreservedAndTreatedAsExpired() throws IOException {
+        TokenCache source = new TokenCache();
+        AccessTokenCacheEntity at = createAccessToken(null, "tenant", null, "token");
+        source.accessTokens.put(at.getKey(), at);
+
+        ObjectNode serializedAt = (ObjectNode) JsonHelper.mapper.readTree(source.serialize());
+        ((ObjectNode) serializedAt.get("AccessToken").get(at.getKey())).put("expires_on", "not_a_number");
+
+        TokenCache tokenCache = new TokenCache();
+        tokenCache.deserialize(serializedAt.toString());
+
+        assertEquals(0, tokenCache.accessTokens.get(at.getKey()).expiresOn());
+        assertEquals(at.cachedAt(), tokenCache.accessTokens.get(at.getKey()).cachedAt());
+        assertEquals("not_a_number", JsonHelper.mapper.readTree(tokenCache.serialize())
+                .get("AccessToken").get(at.getKey()).get("expires_on").asText());
+
+        assertNull(tokenCache.getCachedAuthenticationResult(
+                authority("tenant"), Collections.singleton(SCOPE), CLIENT_ID, null).accessToken());
+    }
+
+    @Test
+    void serializeBinary_isSmallerThanJsonAndLossless() {
+        TokenCache tokenCache = new TokenCache();
+        for (int i = 0; i < 100; i++) {
+            tokenCache.putAccessToken(createAccessToken("uid_" + i, "tenant", null, "token_" + i));
+            tokenCache.putAccessToken(createAccessToken(null, "tenant_" + i, null, "app_token_" + i));
+        }
+
+        String json = tokenCache.serialize();
+        byte[] binary = tokenCache.serializeBinary();
+
+        assertTrue(binary.length < json.length() / 2);
+
+        TokenCache deserializedCache = new TokenCache();
+        deserializedCache.deserializeBinary(binary);
+
+        assertEquals(json, deserializedCache.serialize());
+    }
+
+    @Test
+    void deserializeBinary_invalidData() {
+        TokenCache tokenCache = new TokenCache();
+        byte[] binary = tokenCache.serializeBinary();
+
+        MsalClientException ex = assertThrows(MsalClientException.class,
+                () -> tokenCache.deserializeBinary("{}".getBytes()));
+        assertEquals(AuthenticationErrorCode.INVALID_CACHE_FORMAT, ex.errorCode());
+
+        ex = assertThrows(MsalClientException.class,
+                () -> tokenCache.deserializeBinary(Arrays.copyOf(binary, binary.length - 1)));
+        assertEquals(AuthenticationErrorCode.INVALID_CACHE_FORMAT, ex.errorCode());
+
+        binary[4] = (byte) (TokenCacheBinarySerializer.FORMAT_VERSION + 1);
+        ex = assertThrows(MsalClientException.class, () -> tokenCache.deserializeBinary(binary));
+        assertEquals(AuthenticationErrorCode.INVALID_CACHE_FORMAT, ex.errorCode());
+    }
+
+    @Test
+    void concurrentReadsAndWrites_readsAlwaysSeeConsistentCache() throws Exception {
+        int tenantCount = 100;
+        TokenCache tokenCache = new TokenCache();
+        Authority[] authorities = new Authority[tenantCount];
+        String[] partitions = new String[tenantCount];
+        for (int i = 0; i < tenantCount; i++) {
+            tokenCache.putAccessToken(createAccessToken(null, "tenant_" + i, null, "token_" + i));
+            authorities[i] = authority("tenant_" + i);
+            partitions[i] = tokenCache.serialize(TokenCache.getApplicationPartitionKey(CLIENT_ID, "tenant_" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 64; thread++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int op = 0; op < 1000; op++) {
+                        int i = random.nextInt(tenantCount);
+                        if (random.nextInt(100) == 0) {
+                            //Replaces the tenant's access token under the write lock
+                            tokenCache.deserialize(TokenCache.getApplicationPartitionKey(CLIENT_ID, "tenant_" + i), partitions[i]);
+                        } else {
+                            AuthenticationResult result = tokenCache.getCachedAuthenticationResult(
+                                    authorities[i], Collections.singleton(SCOPE), CLIENT_ID, null);
+                            assertEquals("token_" + i, result.accessToken());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(tenantCount, tokenCache.accessTokens.size());
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TokenRefreshAheadSchedulerTest {
+
+    private static final List<Object> REQUEST_KEY = Collections.singletonList("key");
+    private static final ClientCredentialParameters PARAMETERS =
+            ClientCredentialParameters.builder(Collections.singleton("scope")).build();
+
+    private ScheduledExecutorService scheduledExecutorService;
+    private ConfidentialClientApplication application;
+
+    @BeforeAll
+    void setUp() {
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        application = ConfidentialClientApplication.builder("client_id", ClientCredentialFactory.createFromSecret("secret"))
+                .build();
+    }
+
+    @AfterAll
+    void tearDown() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    private static AuthenticationResult result(long expiresInSec, long refreshInSec) {
+        long currTimeStampSec = System.currentTimeMillis() / 1000;
+
+        return AuthenticationResult.builder()
+                .accessToken("token")
+                .expiresOn(currTimeStampSec + expiresInSec)
+                .refreshOn(refreshInSec > 0 ? currTimeStampSec + refreshInSec : 0)
+                .build();
+    }
+
+    @Test
+    void calculateRefreshAt_renewsAheadOfRefreshOnOrExpiry() {
+        long currTimeStampSec = System.currentTimeMillis() / 1000;
+        long maxLead = TokenRefreshAheadScheduler.REFRESH_AHEAD_IN_SEC + TokenRefreshAheadScheduler.MAX_JITTER_IN_SEC;
+
+        long refreshAt = TokenRefreshAheadScheduler.calculateRefreshAt(result(7200, 3600));
+        assertTrue(refreshAt <= currTimeStampSec + 3600 - TokenRefreshAheadScheduler.REFRESH_AHEAD_IN_SEC);
+        assertTrue(refreshAt >= currTimeStampSec + 3600 - maxLead);
+
+        long expiryDeadline = 3600 - TokenCache.MIN_ACCESS_TOKEN_EXPIRE_IN_SEC;
+        refreshAt = TokenRefreshAheadScheduler.calculateRefreshAt(result(3600, 0));
+        assertTrue(refreshAt <= currTimeStampSec + expiryDeadline - TokenRefreshAheadScheduler.REFRESH_AHEAD_IN_SEC + 1);
+        assertTrue(refreshAt >= currTimeStampSec + expiryDeadline - maxLead);
+
+        //Tokens close to their deadline are renewed halfway to it
+        refreshAt = TokenRefreshAheadScheduler.calculateRefreshAt(result(7200, 60));
+        assertTrue(refreshAt >= currTimeStampSec + 30 && refreshAt <= currTimeStampSec + 31);
+    }
+
+    @Test
+    void run_renewsUsedTokensAndStopsTrackingUnusedOnes() {
+        AtomicInteger refreshCount = new AtomicInteger();
+        TokenRefreshAheadScheduler<ConfidentialClientApplication, ClientCredentialParameters> scheduler =
+                TokenRefreshAheadScheduler.schedule(application, (app, parameters) -> {
+                    refreshCount.incrementAndGet();
+                    //The first renewed token is due again immediately, the second one isn't
+                    return CompletableFuture.completedFuture(refreshCount.get() == 1 ? result(60, 0) : result(7200, 0));
+                }, scheduledExecutorService);
+        try {
+            //Not due yet
+            scheduler.tokenUsed(REQUEST_KEY, PARAMETERS, result(7200, 0));
+            scheduler.run();
+            assertEquals(0, refreshCount.get());
+
+            scheduler.tokenUsed(REQUEST_KEY, PARAMETERS, result(60, 0));
+            scheduler.run();
+            assertEquals(1, refreshCount.get());
+            assertEquals(1, scheduler.successCount());
+
+            //Due again, but not used since it was renewed
+            scheduler.run();
+            assertEquals(1, refreshCount.get());
+            assertEquals(0, scheduler.trackedTokenCount());
+        } finally {
+            scheduler.cancel();
+        }
+    }
+
+    @Test
+    void run_countsFailuresAndKeepsRetrying() {
+        AtomicInteger refreshCount = new AtomicInteger();
+        TokenRefreshAheadScheduler<ConfidentialClientApplication, ClientCredentialParameters> scheduler =
+                TokenRefreshAheadScheduler.schedule(application, (app, parameters) -> {
+                    refreshCount.incrementAndGet();
+                    CompletableFuture<IAuthenticationResult> future = new CompletableFuture<>();
+                    future.completeExceptionally(new MsalServiceException("unavailable", "unavailable"));
+                    return future;
+                }, scheduledExecutorService);
+        try {
+            scheduler.tokenUsed(REQUEST_KEY, PARAMETERS, result(60, 0));
+            scheduler.run();
+
+            assertEquals(1, refreshCount.get());
+            assertEquals(0, scheduler.successCount());
+            assertEquals(1, scheduler.failureCount());
+            assertEquals(1, scheduler.trackedTokenCount());
+
+            //Retried after a delay rather than on every check
+            scheduler.run();
+            assertEquals(1, refreshCount.get());
+        } finally {
+            scheduler.cancel();
+        }
+    }
+
+    @Test
+    void refreshAheadCounters_zeroWhenDisabled() {
+        assertEquals(0, application.refreshAheadSuccessCount());
+        assertEquals(0, application.refreshAheadFailureCount());
+    }
+}
@@ -0,0 +1,265 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.aad.msal4j;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TokenRequestCoalescerTest {
+
+    private static final String CLIENT_ID = "client_id";
+    private static final String AUTHORITY = "https://login.microsoftonline.com/tenant/";
+
+    private ConfidentialClientApplication app;
+
+    @BeforeAll
+    void setup() throws Exception {
+        app = ConfidentialClientApplication.builder(CLIENT_ID, ClientCredentialFactory.createFromSecret("secret"))
+                .authority(AUTHORITY)
+                .build();
+    }
+
+    private RequestContext requestContext(Long timeoutInMs) {
+        return new RequestContext(app, PublicApi.ACQUIRE_TOKEN_FOR_CLIENT,
+                ClientCredentialParameters.builder(Collections.singleton("scope")).timeoutInMs(timeoutInMs).build());
+    }
+
+    private static List<Object> requestKey(String scope) {
+        return TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY,
+                ClientCredentialParameters.builder(Collections.singleton(scope)).build(), null);
+    }
+
+    @Test
+    void requestKey_ignoresScopeOrderAndCase() {
+        ClientCredentialParameters parameters = ClientCredentialParameters.builder(
+                new HashSet<>(Arrays.asList("scope_1", "SCOPE_2"))).build();
+        ClientCredentialParameters sameScopes = ClientCredentialParameters.builder(
+                new HashSet<>(Arrays.asList("scope_2", "scope_1"))).build();
+        ClientCredentialParameters otherTenant = ClientCredentialParameters.builder(
+                new HashSet<>(Arrays.asList("scope_2", "scope_1"))).tenant("other_tenant").build();
+
+        assertEquals(TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, parameters, null),
+                TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, sameScopes, null));
+        assertNotEquals(TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, parameters, null),
+                TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, otherTenant, null));
+        assertNotEquals(TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, parameters, null),
+                TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, parameters, "assertion_hash"));
+
+        ClientCredentialParameters otherHeaders = ClientCredentialParameters.builder(
+                new HashSet<>(Arrays.asList("scope_2", "scope_1")))
+                .extraHttpHeaders(Collections.singletonMap("header", "value")).build();
+        assertNotEquals(TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, parameters, null),
+                TokenRequestCoalescer.requestKey(CLIENT_ID, AUTHORITY, otherHeaders, null));
+    }
+
+    @Test
+    void execute_concurrentIdenticalRequestsShareOneRequest() throws Exception {
+        TokenRequestCoalescer coalescer = new TokenRequestCoalescer();
+        AtomicInteger requestCount = new AtomicInteger();
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        AuthenticationResult result = AuthenticationResult.builder().accessToken("token").expiresOn(0).build();
+
+        int threadCount = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<AuthenticationResult>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> coalescer.execute(requestKey("scope"), requestContext(null),
+                        context -> {
+                            requestCount.incrementAndGet();
+                            releaseRequest.await();
+                            return result;
+                        })));
+            }
+
+            //Wait until all but the request being sent are waiting for its result
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (coalescer.coalescedRequestCount() < threadCount - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            releaseRequest.countDown();
+
+            for (Future<AuthenticationResult> future : futures) {
+                assertSame(result, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, requestCount.get());
+        assertEquals(threadCount - 1, coalescer.coalescedRequestCount());
+    }
+
+    @Test
+    void acquireToken_concurrentClientCredentialRequestsShareOneTokenRequest() throws Exception {
+        AtomicInteger requestCount = new AtomicInteger();
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        IHttpClient httpClient = httpRequest -> {
+            requestCount.incrementAndGet();
+            releaseResponse.await();
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.statusCode(200);
+            httpResponse.body(TestConfiguration.TOKEN_ENDPOINT_OK_RESPONSE);
+            httpResponse.addHeaders(Collections.singletonMap("Content-Type", Collections.singletonList("application/json")));
+            return httpResponse;
+        };
+        ConfidentialClientApplication app = ConfidentialClientApplication.builder(CLIENT_ID,
+                        ClientCredentialFactory.createFromSecret("secret"))
+                .authority(AUTHORITY)
+                .instanceDiscovery(false)
+                .httpClient(httpClient)
+                .build();
+
+        int requestsMade = 5;
+        List<CompletableFuture<IAuthenticationResult>> futures = new ArrayList<>();
+        for (int i = 0; i < requestsMade; i++) {
+            futures.add(app.acquireToken(ClientCredentialParameters.builder(Collections.singleton("scope")).build()));
+        }
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (app.coalescedTokenRequestCount() < requestsMade - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        releaseResponse.countDown();
+
+        for (CompletableFuture<IAuthenticationResult> future : futures) {
+            IAuthenticationResult result = future.get(10, TimeUnit.SECONDS);
+            assertSame(futures.get(0).get(), result);
+            assertEquals(TokenSource.IDENTITY_PROVIDER, result.metadata().tokenSource());
+        }
+        assertEquals(1, requestCount.get());
+        assertEquals(requestsMade - 1, app.coalescedTokenRequestCount());
+    }
+
+    @Test
+    void execute_exceptionIsRethrownToWaitingRequests() throws Exception {
+        TokenRequestCoalescer coalescer = new TokenRequestCoalescer();
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        MsalServiceException exception = new MsalServiceException("throttled", "throttled");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<AuthenticationResult> sentRequest = executor.submit(() -> coalescer.execute(requestKey("scope"),
+                    requestContext(null), context -> {
+                        requestStarted.countDown();
+                        releaseRequest.await();
+                        throw exception;
+                    }));
+            requestStarted.await();
+
+            Thread waitingThread = new Thread(() -> {
+                long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+                while (coalescer.coalescedRequestCount() < 1 && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                releaseRequest.countDown();
+            });
+            waitingThread.start();
+
+            MsalServiceException thrown = assertThrows(MsalServiceException.class,
+                    () -> coalescer.execute(requestKey("scope"), requestContext(null), context -> {
+                        throw new IllegalStateException("Request should have been shared");
+                    }));
+            assertSame(exception, thrown);
+            assertThrows(Exception.class, sentRequest::get);
+            waitingThread.join();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_differentOrCompletedRequestsAreNotShared() throws Exception {
+        TokenRequestCoalescer coalescer = new TokenRequestCoalescer();
+        AtomicInteger requestCount = new AtomicInteger();
+
+        coalescer.execute(requestKey("scope_1"), requestContext(null), context -> {
+            //A different request made while this one is in flight is sent separately
+            coalescer.execute(requestKey("scope_2"), requestContext(null), otherContext -> {
+                requestCount.incrementAndGet();
+                return null;
+            });
+            requestCount.incrementAndGet();
+            return null;
+        });
+        coalescer.execute(requestKey("scope_1"), requestContext(null), context -> {
+            requestCount.incrementAndGet();
+            return null;
+        });
+        coalescer.execute(null, requestContext(null), context -> {
+            requestCount.incrementAndGet();
+            return null;
+        });
+
+        assertEquals(4, requestCount.get());
+        assertEquals(0, coalescer.coalescedRequestCount());
+    }
+
+    @Test
+    void execute_sharedRequestIsNotStoppedByTimeoutOfRequestWhichStartedIt() throws Exception {
+        TokenRequestCoalescer coalescer = new TokenRequestCoalescer();
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        AuthenticationResult result = AuthenticationResult.builder().accessToken("token").expiresOn(0).build();
+        RequestContext startingContext = requestContext(50L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<AuthenticationResult> sentRequest = executor.submit(() -> coalescer.execute(requestKey("scope"),
+                    startingContext, context -> {
+                        releaseRequest.await();
+                        //The shared request is sent without the timeout of the request which started it
+                        assertEquals(0, context.deadlineInMs());
+                        context.checkNotCancelled();
+                        return result;
+                    }));
+
+            //A waiting request without timeout gets the result, even though the starting request timed out
+            Future<AuthenticationResult> waitingRequest = executor.submit(() -> coalescer.execute(requestKey("scope"),
+                    requestContext(null), context -> {
+                        throw new IllegalStateException("Request should have been shared");
+                    }));
+
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (coalescer.coalescedRequestCount() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            //A waiting request with a short timeout stops waiting once it expires
+            MsalClientException timeout = assertThrows(MsalClientException.class, () -> coalescer.execute(
+                    requestKey("scope"), requestContext(10L), context -> {
+                        throw new IllegalStateException("Request should have been shared");
+                    }));
+            assertEquals(AuthenticationErrorCode.REQUEST_TIMEOUT, timeout.errorCode());
+
+            Thread.sleep(100);
+            releaseRequest.countDown();
+
+            assertSame(result, sentRequest.get());
+            assertSame(result, waitingRequest.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}